@@ -0,0 +1,114 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.benchmark;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.camunda.bpm.client.ExternalTaskClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the external task client against the {@link EngineStub}:
+ * <ul>
+ *     <li>{@link #completeTasks()} provides a batch of tasks per invocation and waits until the client has completed
+ *     all of them, the score is reported in tasks per second</li>
+ *     <li>{@link #completeTask()} provides a single task per invocation and samples the time until it was completed,
+ *     JMH reports the percentiles, e.g. p0.50 and p0.99, over all measurement iterations of a trial</li>
+ * </ul>
+ * Run with {@code -prof gc} to report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExternalTaskClientBenchmark {
+
+    static final int TASKS_PER_INVOCATION = 500;
+
+    @Param({"10", "100"})
+    public int maxTasks;
+
+    @Param({"0", "5"})
+    public int handlerLatencyMillis;
+
+    @Param({"0", "10240"})
+    public int variableSize;
+
+    private ApplicationContext applicationContext;
+    private EngineStub engineStub;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("micronaut.server.port", port);
+        properties.put("camunda.external-client.base-url", "http://localhost:" + port + "/engine-rest");
+        properties.put("camunda.external-client.max-tasks", maxTasks);
+        properties.put("camunda.external-client.async-response-timeout", 10000);
+        // an empty fetch between two invocations must not delay the next one
+        properties.put("camunda.external-client.disable-backoff-strategy", true);
+        properties.put("benchmark.handler-latency", handlerLatencyMillis + "ms");
+        applicationContext = ApplicationContext.run(EmbeddedServer.class, properties).getApplicationContext();
+        engineStub = applicationContext.getBean(EngineStub.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS_PER_INVOCATION)
+    public int completeTasks() throws InterruptedException {
+        return provideAndAwait(TASKS_PER_INVOCATION);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int completeTask() throws InterruptedException {
+        return provideAndAwait(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // stop fetching before the server is shut down
+        engineStub.close();
+        applicationContext.getBean(ExternalTaskClient.class).stop();
+        applicationContext.close();
+    }
+
+    private int provideAndAwait(int tasks) throws InterruptedException {
+        engineStub.reset(tasks, variableSize);
+        if (!engineStub.awaitDone(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Tasks were not completed in time");
+        }
+        return engineStub.getCompletedTasks();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.benchmark;
+
+import info.novatec.micronaut.camunda.external.client.feature.ExternalTaskSubscription;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Singleton;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+import org.camunda.bpm.client.task.ExternalTaskService;
+
+import java.time.Duration;
+
+/**
+ * Reads the variable of a task, simulates the configured processing time and completes the task.
+ */
+@Singleton
+@ExternalTaskSubscription(topicName = BenchmarkHandler.TOPIC_NAME)
+public class BenchmarkHandler implements ExternalTaskHandler {
+
+    public static final String TOPIC_NAME = "benchmark";
+
+    protected final Duration latency;
+
+    public BenchmarkHandler(@Value("${benchmark.handler-latency:0ms}") Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        externalTask.getVariable("payload");
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        externalTaskService.complete(externalTask);
+    }
+}
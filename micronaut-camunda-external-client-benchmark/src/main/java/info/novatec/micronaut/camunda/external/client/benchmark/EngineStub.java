@@ -0,0 +1,198 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.benchmark;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for the external task API of the Camunda Platform. A fixed volume of tasks is handed out by
+ * fetch and lock until the outcome of all of them has been reported.
+ */
+@Singleton
+public class EngineStub {
+
+    // the default date format of the external task client
+    protected static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    protected final EngineStubConfiguration configuration;
+    protected final Object monitor = new Object();
+    protected final AtomicLong taskIds = new AtomicLong();
+    protected final AtomicInteger completedTasks = new AtomicInteger();
+    protected final AtomicInteger failedTasks = new AtomicInteger();
+    protected final AtomicInteger extendedLocks = new AtomicInteger();
+
+    protected int availableTasks;
+    protected int expectedTasks;
+    protected int doneTasks;
+    protected String variableValue;
+    protected volatile boolean closed;
+
+    public EngineStub(EngineStubConfiguration configuration) {
+        this.configuration = configuration;
+        reset(configuration.getTasks(), configuration.getVariableSize());
+    }
+
+    /**
+     * Discards all tasks and provides new ones.
+     *
+     * @param tasks the number of tasks to provide
+     * @param variableSize the size in characters of the string variable passed with every task, 0 for no variable
+     */
+    public void reset(int tasks, int variableSize) {
+        synchronized (monitor) {
+            completedTasks.set(0);
+            failedTasks.set(0);
+            extendedLocks.set(0);
+            doneTasks = 0;
+            char[] value = new char[variableSize];
+            Arrays.fill(value, 'x');
+            variableValue = variableSize > 0 ? new String(value) : null;
+            availableTasks = tasks;
+            expectedTasks = tasks;
+            monitor.notifyAll();
+        }
+    }
+
+    /**
+     * Locks up to max tasks. If no tasks are available, waits up to the async response timeout for new tasks.
+     */
+    public List<Map<String, Object>> fetchAndLock(String workerId, String topicName, int maxTasks, long lockDuration, long asyncResponseTimeout) throws InterruptedException {
+        int lockedCount;
+        String value;
+        synchronized (monitor) {
+            long deadline = System.currentTimeMillis() + asyncResponseTimeout;
+            while (availableTasks == 0 && !closed && System.currentTimeMillis() < deadline) {
+                monitor.wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            lockedCount = Math.min(maxTasks, availableTasks);
+            availableTasks -= lockedCount;
+            value = variableValue;
+        }
+
+        String lockExpirationTime = new SimpleDateFormat(DATE_FORMAT).format(new Date(System.currentTimeMillis() + lockDuration));
+        List<Map<String, Object>> tasks = new ArrayList<>(lockedCount);
+        for (int i = 0; i < lockedCount; i++) {
+            String id = String.valueOf(taskIds.incrementAndGet());
+            tasks.add(createTask(id, workerId, topicName, lockExpirationTime, value));
+        }
+        return tasks;
+    }
+
+    /**
+     * Answers pending and further fetch and lock requests immediately so that the clients can be stopped.
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (monitor) {
+            closed = true;
+            monitor.notifyAll();
+        }
+    }
+
+    public void complete(String taskId) {
+        completedTasks.incrementAndGet();
+        onDone();
+    }
+
+    public void failure(String taskId) {
+        failedTasks.incrementAndGet();
+        onDone();
+    }
+
+    public void extendLock(String taskId) {
+        extendedLocks.incrementAndGet();
+    }
+
+    /**
+     * Waits until the outcome of all tasks has been reported.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if all tasks are done
+     */
+    public boolean awaitDone(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (monitor) {
+            while (doneTasks < expectedTasks) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+            }
+        }
+        return true;
+    }
+
+    public int getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    public int getFailedTasks() {
+        return failedTasks.get();
+    }
+
+    public int getExtendedLocks() {
+        return extendedLocks.get();
+    }
+
+    protected void onDone() {
+        synchronized (monitor) {
+            if (++doneTasks >= expectedTasks) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    protected Map<String, Object> createTask(String id, String workerId, String topicName, String lockExpirationTime, String variableValue) {
+        Map<String, Object> task = new HashMap<>();
+        task.put("id", id);
+        task.put("activityId", "benchmark-task");
+        task.put("activityInstanceId", "benchmark-task:" + id);
+        task.put("executionId", id);
+        task.put("processInstanceId", id);
+        task.put("processDefinitionId", "benchmark:1:1");
+        task.put("processDefinitionKey", "benchmark");
+        task.put("workerId", workerId);
+        task.put("topicName", topicName);
+        task.put("lockExpirationTime", lockExpirationTime);
+        task.put("priority", 0);
+        task.put("extensionProperties", Collections.emptyMap());
+        Map<String, Object> variables = new HashMap<>();
+        if (variableValue != null) {
+            Map<String, Object> variable = new HashMap<>();
+            variable.put("type", "String");
+            variable.put("value", variableValue);
+            variable.put("valueInfo", Collections.emptyMap());
+            variables.put("payload", variable);
+        }
+        task.put("variables", variables);
+        return task;
+    }
+}
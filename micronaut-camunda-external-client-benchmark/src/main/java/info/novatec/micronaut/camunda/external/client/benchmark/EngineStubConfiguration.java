@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.benchmark;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link EngineStub}.
+ */
+@ConfigurationProperties("engine-stub")
+public class EngineStubConfiguration {
+
+    private Duration latency = Duration.ZERO;
+    private int tasks = 0;
+    private int variableSize = 0;
+
+    /**
+     * @return the time each request takes before it is answered
+     */
+    public Duration getLatency() {
+        return latency;
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * @return the number of tasks available after startup
+     */
+    public int getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(int tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * @return the size in characters of the string variable passed with every task, 0 for no variable
+     */
+    public int getVariableSize() {
+        return variableSize;
+    }
+
+    public void setVariableSize(int variableSize) {
+        this.variableSize = variableSize;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.benchmark;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.Body;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.PathVariable;
+import io.micronaut.http.annotation.Post;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoints of the external task REST API which are used by the external task client to fetch tasks and report
+ * their outcome.
+ */
+@Controller("/engine-rest/external-task")
+@ExecuteOn(TaskExecutors.IO)
+public class EngineStubController {
+
+    protected final EngineStub engineStub;
+    protected final EngineStubConfiguration configuration;
+
+    public EngineStubController(EngineStub engineStub, EngineStubConfiguration configuration) {
+        this.engineStub = engineStub;
+        this.configuration = configuration;
+    }
+
+    @Post("/fetchAndLock")
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> fetchAndLock(@Body Map<String, Object> request) throws InterruptedException {
+        simulateLatency();
+        String workerId = (String) request.get("workerId");
+        int maxTasks = ((Number) request.get("maxTasks")).intValue();
+        Object asyncResponseTimeout = request.get("asyncResponseTimeout");
+        List<Map<String, Object>> tasks = new ArrayList<>();
+        for (Map<String, Object> topic : (List<Map<String, Object>>) request.get("topics")) {
+            if (tasks.size() < maxTasks) {
+                tasks.addAll(engineStub.fetchAndLock(workerId, (String) topic.get("topicName"), maxTasks - tasks.size(),
+                        ((Number) topic.get("lockDuration")).longValue(),
+                        tasks.isEmpty() && asyncResponseTimeout != null ? ((Number) asyncResponseTimeout).longValue() : 0));
+            }
+        }
+        return tasks;
+    }
+
+    @Post("/{id}/complete")
+    public HttpResponse<?> complete(@PathVariable String id, @Body Map<String, Object> request) throws InterruptedException {
+        simulateLatency();
+        engineStub.complete(id);
+        return HttpResponse.noContent();
+    }
+
+    @Post("/{id}/failure")
+    public HttpResponse<?> failure(@PathVariable String id, @Body Map<String, Object> request) throws InterruptedException {
+        simulateLatency();
+        engineStub.failure(id);
+        return HttpResponse.noContent();
+    }
+
+    @Post("/{id}/extendLock")
+    public HttpResponse<?> extendLock(@PathVariable String id, @Body Map<String, Object> request) throws InterruptedException {
+        simulateLatency();
+        engineStub.extendLock(id);
+        return HttpResponse.noContent();
+    }
+
+    protected void simulateLatency() throws InterruptedException {
+        if (!configuration.getLatency().isZero()) {
+            Thread.sleep(configuration.getLatency().toMillis());
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.backoff.ErrorAwareBackoffStrategy;
+import org.camunda.bpm.client.exception.ExternalTaskClientException;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Backoff strategy which additionally controls the amount of tasks fetched by {@link MicronautTopicSubscriptionManager}.
+ * <p>
+ * The lock time remaining when the outcome of a task is reported is compared to the lock duration it was fetched with.
+ * {@link MicronautTopicSubscriptionManager} reports every outcome via {@link #onTaskCompleted(long, long, long)}, which
+ * also covers concurrent and asynchronous handlers that return before the task has been handled. After each fetch, the
+ * smallest ratio reported since the previous fetch adjusts the fetch limit (additive increase, multiplicative decrease):
+ * <ul>
+ *     <li>if less than a quarter of the lock is left, the fetch limit is halved</li>
+ *     <li>if more than half of the lock is left and the batch was full, the fetch limit is increased by a step</li>
+ * </ul>
+ * The fetch limit always stays between the configured min tasks and max tasks. If no tasks are fetched or fetching
+ * fails, the acquisition backs off exponentially up to the max backoff time.
+ * <p>
+ * The controller is the backoff strategy of a client, i.e. the fetch limit applies to all topics of the client. The
+ * throughput is derived from the reported outcomes per time window, not from the speed tasks are dispatched with.
+ */
+public class AdaptiveFetchController implements ErrorAwareBackoffStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveFetchController.class);
+
+    protected static final long INITIAL_BACKOFF_TIME = 500;
+    protected static final int BACKOFF_FACTOR = 2;
+    protected static final double DECREASE_THRESHOLD = 0.25;
+    protected static final double INCREASE_THRESHOLD = 0.5;
+    protected static final double THROUGHPUT_SMOOTHING = 0.2;
+    protected static final long THROUGHPUT_WINDOW = 1000;
+
+    protected final int minTasks;
+    protected final int maxTasks;
+    protected final int increaseStep;
+    protected final long maxBackoffTime;
+
+    // only modified by the acquisition thread, volatile for diagnosis
+    protected volatile int fetchLimit;
+    protected volatile long backoffTime;
+    protected volatile double throughput;
+    protected volatile long fetchedAt;
+    protected long throughputWindowStart;
+
+    // reported by the threads handling the tasks, guarded by this
+    protected double completedLockRatio = 1;
+    protected int completedTasks;
+    protected int windowCompletedTasks;
+
+    public AdaptiveFetchController(int minTasks, int maxTasks, long maxBackoffTime) {
+        if (minTasks <= 0 || minTasks > maxTasks) {
+            throw new IllegalArgumentException("Min tasks must be greater than zero and not greater than max tasks " + maxTasks);
+        }
+        this.minTasks = minTasks;
+        this.maxTasks = maxTasks;
+        this.increaseStep = Math.max(1, maxTasks / 10);
+        this.maxBackoffTime = maxBackoffTime;
+        this.fetchLimit = maxTasks;
+    }
+
+    /**
+     * Notifies the controller that a fetch and lock request returned.
+     *
+     * @param fetchedAt the time in milliseconds when the tasks have been locked
+     */
+    public void onFetchAndLock(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Notifies the controller that the outcome of a task is reported.
+     *
+     * @param lockedAt the time in milliseconds when the task has been locked
+     * @param lockExpirationTime the time in milliseconds when the lock the task has been fetched with expires
+     * @param completedAt the time in milliseconds when the outcome is reported
+     */
+    public synchronized void onTaskCompleted(long lockedAt, long lockExpirationTime, long completedAt) {
+        long lockDuration = Math.max(1, lockExpirationTime - lockedAt);
+        completedLockRatio = Math.min(completedLockRatio, (double) (lockExpirationTime - completedAt) / lockDuration);
+        completedTasks++;
+        windowCompletedTasks++;
+    }
+
+    @Override
+    public void reconfigure(List<ExternalTask> externalTasks, ExternalTaskClientException error) {
+        long now = System.currentTimeMillis();
+        updateThroughput(now);
+
+        if (error != null || externalTasks.isEmpty()) {
+            backoffTime = backoffTime == 0 ? INITIAL_BACKOFF_TIME : Math.min(maxBackoffTime, backoffTime * BACKOFF_FACTOR);
+            return;
+        }
+        backoffTime = 0;
+
+        // without reported outcomes, e.g. if the handler lets the lock expire, the fetched tasks are checked instead
+        double remainingLockRatio = takeCompletedLockRatio();
+        if (Double.isNaN(remainingLockRatio)) {
+            remainingLockRatio = getRemainingLockRatio(externalTasks, now);
+        }
+        int previousFetchLimit = fetchLimit;
+        if (remainingLockRatio < DECREASE_THRESHOLD) {
+            fetchLimit = Math.max(minTasks, previousFetchLimit / 2);
+        } else if (remainingLockRatio > INCREASE_THRESHOLD && externalTasks.size() >= previousFetchLimit) {
+            fetchLimit = Math.min(maxTasks, previousFetchLimit + increaseStep);
+        }
+        if (fetchLimit != previousFetchLimit) {
+            log.debug("Changed fetch limit from {} to {} (remaining lock ratio {}, throughput {} tasks/s)",
+                    previousFetchLimit, fetchLimit, String.format("%.2f", remainingLockRatio), String.format("%.1f", throughput));
+        }
+    }
+
+    @Override
+    public long calculateBackoffTime() {
+        return backoffTime;
+    }
+
+    /**
+     * @return the maximum amount of tasks the next fetch and lock request may lock
+     */
+    public int getFetchLimit() {
+        return fetchLimit;
+    }
+
+    /**
+     * @return the time in milliseconds the acquisition currently waits between fetch and lock requests
+     */
+    public long getBackoffTime() {
+        return backoffTime;
+    }
+
+    /**
+     * @return the smoothed number of outcomes reported per second
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public int getMinTasks() {
+        return minTasks;
+    }
+
+    public int getMaxTasks() {
+        return maxTasks;
+    }
+
+    /**
+     * Updates the throughput once the current time window has elapsed, the outcomes are counted until then.
+     */
+    protected void updateThroughput(long now) {
+        if (throughputWindowStart == 0) {
+            throughputWindowStart = now;
+            return;
+        }
+        long windowTime = now - throughputWindowStart;
+        if (windowTime < THROUGHPUT_WINDOW) {
+            return;
+        }
+        double windowThroughput;
+        synchronized (this) {
+            windowThroughput = windowCompletedTasks * 1000.0 / windowTime;
+            windowCompletedTasks = 0;
+        }
+        throughput = throughput == 0
+                ? windowThroughput
+                : (1 - THROUGHPUT_SMOOTHING) * throughput + THROUGHPUT_SMOOTHING * windowThroughput;
+        throughputWindowStart = now;
+    }
+
+    /**
+     * Returns the smallest share of the lock duration which was left when outcomes have been reported since the last
+     * call, or NaN if no outcome has been reported.
+     */
+    protected synchronized double takeCompletedLockRatio() {
+        double ratio = completedTasks > 0 ? completedLockRatio : Double.NaN;
+        completedLockRatio = 1;
+        completedTasks = 0;
+        return ratio;
+    }
+
+    /**
+     * Returns the smallest share of the lock duration which was left when the batch was handled, e.g. 0.8 if the
+     * task with the least time left still had 80% of its lock duration.
+     */
+    protected double getRemainingLockRatio(List<ExternalTask> externalTasks, long now) {
+        double remainingLockRatio = 1;
+        for (ExternalTask externalTask : externalTasks) {
+            Date lockExpirationTime = externalTask.getLockExpirationTime();
+            if (lockExpirationTime != null) {
+                long lockDuration = Math.max(1, lockExpirationTime.getTime() - fetchedAt);
+                remainingLockRatio = Math.min(remainingLockRatio, (double) (lockExpirationTime.getTime() - now) / lockDuration);
+            }
+        }
+        return remainingLockRatio;
+    }
+}
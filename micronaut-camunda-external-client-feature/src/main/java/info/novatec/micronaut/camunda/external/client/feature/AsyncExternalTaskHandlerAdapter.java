@@ -0,0 +1,200 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import io.micronaut.core.annotation.Nullable;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+import org.camunda.bpm.client.task.ExternalTaskService;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Subscribes an {@link AsyncExternalTaskHandler} like an {@link ExternalTaskHandler}. The fetching thread only starts
+ * the execution, the outcome is reported on the completion executor once the returned stage completes. The number of
+ * outstanding tasks is limited, see {@link CapacityAwareExternalTaskHandler}.
+ */
+public class AsyncExternalTaskHandlerAdapter implements CapacityAwareExternalTaskHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncExternalTaskHandlerAdapter.class);
+
+    protected final AsyncExternalTaskHandler asyncExternalTaskHandler;
+    protected final String topicName;
+    protected final int maxOutstandingTasks;
+    protected final Executor completionExecutor;
+    protected final LockExtender lockExtender;
+    protected final long lockDuration;
+    protected final ExternalTaskHandler externalTaskHandler;
+    protected final AtomicInteger outstandingTasks = new AtomicInteger();
+
+    protected volatile Runnable slotReleasedListener = () -> { };
+
+    /**
+     * @param asyncExternalTaskHandler the handler
+     * @param topicName the topic of the handler
+     * @param maxOutstandingTasks the maximum number of tasks which have been started but whose outcome has not been reported yet
+     * @param completionExecutor the executor which reports the outcome to the engine
+     * @param decorator decorates the handler which starts the execution and reports the outcome, e.g. with {@link ExternalTaskHandlerDecorator}s
+     * @param lockExtender extends the lock of outstanding tasks, may be null
+     * @param lockDuration the lock duration of the topic
+     */
+    public AsyncExternalTaskHandlerAdapter(AsyncExternalTaskHandler asyncExternalTaskHandler,
+                                           String topicName,
+                                           int maxOutstandingTasks,
+                                           Executor completionExecutor,
+                                           UnaryOperator<ExternalTaskHandler> decorator,
+                                           @Nullable LockExtender lockExtender,
+                                           long lockDuration) {
+        if (maxOutstandingTasks <= 0) {
+            throw new IllegalArgumentException("Maximum number of outstanding tasks for topic '" + topicName + "' must be greater than zero");
+        }
+        this.asyncExternalTaskHandler = asyncExternalTaskHandler;
+        this.topicName = topicName;
+        this.maxOutstandingTasks = maxOutstandingTasks;
+        this.completionExecutor = completionExecutor;
+        this.lockExtender = lockExtender;
+        this.lockDuration = lockDuration;
+        this.externalTaskHandler = decorator.apply(this::start);
+    }
+
+    /**
+     * Adapts a {@link ReactiveExternalTaskHandler}. Only the first outcome emitted is used.
+     *
+     * @param reactiveExternalTaskHandler the handler
+     * @return the asynchronous handler
+     */
+    public static AsyncExternalTaskHandler adapt(ReactiveExternalTaskHandler reactiveExternalTaskHandler) {
+        return externalTask -> toCompletionStage(reactiveExternalTaskHandler.execute(externalTask));
+    }
+
+    @Override
+    public void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        outstandingTasks.incrementAndGet();
+        try {
+            externalTaskHandler.execute(externalTask, externalTaskService);
+        } catch (RuntimeException | Error e) {
+            releaseSlot();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getFreeSlots() {
+        return Math.max(0, maxOutstandingTasks - outstandingTasks.get());
+    }
+
+    @Override
+    public void setSlotReleasedListener(Runnable slotReleasedListener) {
+        this.slotReleasedListener = slotReleasedListener;
+    }
+
+    public int getMaxOutstandingTasks() {
+        return maxOutstandingTasks;
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public AsyncExternalTaskHandler getAsyncExternalTaskHandler() {
+        return asyncExternalTaskHandler;
+    }
+
+    protected void start(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        LockExtender.Lease lease = lockExtender != null ? lockExtender.register(externalTask, externalTaskService, lockDuration) : null;
+        CompletionStage<ExternalTaskOutcome> outcome;
+        try {
+            outcome = asyncExternalTaskHandler.execute(externalTask);
+        } catch (RuntimeException | Error e) {
+            if (lease != null) {
+                lease.cancel();
+            }
+            throw e;
+        }
+        outcome.whenCompleteAsync((externalTaskOutcome, error) -> {
+            try {
+                if (lease != null) {
+                    lease.cancel();
+                }
+                if (error != null) {
+                    log.error("Exception while executing asynchronous external task handler for topic '{}'", topicName, error);
+                } else if (externalTaskOutcome == null) {
+                    log.error("Asynchronous external task handler for topic '{}' did not return an outcome for task {}", topicName, externalTask.getId());
+                } else {
+                    externalTaskOutcome.report(externalTask, externalTaskService);
+                }
+            } catch (Throwable e) {
+                log.error("Exception while reporting the outcome of task {} for topic '{}'", externalTask.getId(), topicName, e);
+            } finally {
+                releaseSlot();
+            }
+        }, completionExecutor);
+    }
+
+    protected void releaseSlot() {
+        outstandingTasks.decrementAndGet();
+        slotReleasedListener.run();
+    }
+
+    /**
+     * Converts a publisher into a stage which is completed with the first item.
+     *
+     * @param publisher the publisher
+     * @param <T> the item type
+     * @return the stage
+     */
+    public static <T> CompletionStage<T> toCompletionStage(Publisher<T> publisher) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(T item) {
+                if (future.complete(item)) {
+                    subscription.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                future.completeExceptionally(new NoSuchElementException("Publisher completed without an outcome"));
+            }
+        });
+        return future;
+    }
+}
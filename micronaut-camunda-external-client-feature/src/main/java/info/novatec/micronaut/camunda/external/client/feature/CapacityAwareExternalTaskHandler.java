@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+
+/**
+ * Handler which can only accept a limited number of tasks at the same time. {@link MicronautTopicSubscriptionManager}
+ * only fetches as many tasks as the handler has free slots.
+ */
+public interface CapacityAwareExternalTaskHandler extends ExternalTaskHandler {
+
+    /**
+     * Returns the number of tasks which can be accepted immediately.
+     *
+     * @return the number of free slots
+     */
+    int getFreeSlots();
+
+    /**
+     * Registers a listener which is notified whenever a task finished and its slot became available again.
+     *
+     * @param slotReleasedListener the listener
+     */
+    void setSlotReleasedListener(Runnable slotReleasedListener);
+
+}
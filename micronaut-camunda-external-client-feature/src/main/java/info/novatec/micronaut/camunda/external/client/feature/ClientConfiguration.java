@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import io.micronaut.context.annotation.EachProperty;
+import io.micronaut.context.annotation.Parameter;
+
+import java.util.Optional;
+
+/**
+ * Configuration of an additional, named external task client below {@code camunda.external-client.clients.<name>}.
+ * Every named client has its own fetch loop, max tasks and backoff state. Properties which are not set are inherited
+ * from {@link Configuration}.
+ */
+@EachProperty("camunda.external-client.clients")
+public class ClientConfiguration {
+
+    private final String name;
+    private String baseUrl;
+    private String workerId;
+    private Integer maxTasks;
+    private Boolean usePriority;
+    private Long asyncResponseTimeout;
+    private Long lockDuration;
+    private Boolean disableAutoFetching;
+    private Boolean disableBackoffStrategy;
+    private Boolean adaptiveFetching;
+    private Integer minTasks;
+    private String completionJournal;
+
+    public ClientConfiguration(@Parameter String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name of the client which is referenced by subscriptions
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Optional<String> getBaseUrl() {
+        return Optional.ofNullable(baseUrl);
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public Optional<String> getWorkerId() {
+        return Optional.ofNullable(workerId);
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public Optional<Integer> getMaxTasks() {
+        return Optional.ofNullable(maxTasks);
+    }
+
+    public void setMaxTasks(Integer maxTasks) {
+        this.maxTasks = maxTasks;
+    }
+
+    public Optional<Boolean> getUsePriority() {
+        return Optional.ofNullable(usePriority);
+    }
+
+    public void setUsePriority(Boolean usePriority) {
+        this.usePriority = usePriority;
+    }
+
+    public Optional<Long> getAsyncResponseTimeout() {
+        return Optional.ofNullable(asyncResponseTimeout);
+    }
+
+    public void setAsyncResponseTimeout(Long asyncResponseTimeout) {
+        this.asyncResponseTimeout = asyncResponseTimeout;
+    }
+
+    public Optional<Long> getLockDuration() {
+        return Optional.ofNullable(lockDuration);
+    }
+
+    public void setLockDuration(Long lockDuration) {
+        this.lockDuration = lockDuration;
+    }
+
+    public Optional<Boolean> getDisableAutoFetching() {
+        return Optional.ofNullable(disableAutoFetching);
+    }
+
+    public void setDisableAutoFetching(Boolean disableAutoFetching) {
+        this.disableAutoFetching = disableAutoFetching;
+    }
+
+    public Optional<Boolean> getDisableBackoffStrategy() {
+        return Optional.ofNullable(disableBackoffStrategy);
+    }
+
+    public void setDisableBackoffStrategy(Boolean disableBackoffStrategy) {
+        this.disableBackoffStrategy = disableBackoffStrategy;
+    }
+
+    public Optional<Boolean> getAdaptiveFetching() {
+        return Optional.ofNullable(adaptiveFetching);
+    }
+
+    public void setAdaptiveFetching(Boolean adaptiveFetching) {
+        this.adaptiveFetching = adaptiveFetching;
+    }
+
+    public Optional<Integer> getMinTasks() {
+        return Optional.ofNullable(minTasks);
+    }
+
+    public void setMinTasks(Integer minTasks) {
+        this.minTasks = minTasks;
+    }
+
+    public Optional<String> getCompletionJournal() {
+        return Optional.ofNullable(completionJournal);
+    }
+
+    public void setCompletionJournal(String completionJournal) {
+        this.completionJournal = completionJournal;
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal in a memory-mapped file. Each record consists of the length and checksum of the payload, a state
+ * and the payload itself. Records are appended as pending and only their state is changed once they are
+ * acknowledged. The space is reclaimed when all records are acknowledged or, if the journal is full, by rewriting the
+ * pending records to a new file.
+ * <p>
+ * Appended records are forced to the storage device by {@link #sync(Record)}. A single force covers all records
+ * appended before it, i.e. concurrent appends are committed as a group.
+ * <p>
+ * Pending records found in an existing file are recovered when the journal is opened. A record which was not written
+ * completely, e.g. due to a crash, marks the end of the journal.
+ */
+public class CompletionJournal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CompletionJournal.class);
+
+    // length (int), checksum (int), state (byte)
+    protected static final int HEADER_SIZE = 9;
+    protected static final int END_MARKER_SIZE = 4;
+    protected static final byte PENDING = 1;
+    protected static final byte ACKNOWLEDGED = 2;
+
+    protected final Path file;
+    protected final Set<Record> pendingRecords = new LinkedHashSet<>();
+    protected FileChannel channel;
+    protected MappedByteBuffer buffer;
+    protected int capacity;
+    protected int position;
+    protected long appendedSequence;
+    protected long forcedSequence;
+    protected boolean forcing;
+
+    /**
+     * Opens the journal and recovers its pending records.
+     *
+     * @param file the file of the journal, created if it does not exist
+     * @param capacity the size of the file in bytes, an existing file is not shrunk
+     * @throws IOException if the file cannot be opened
+     */
+    public CompletionJournal(Path file, int capacity) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        map(Math.max(capacity, (int) Math.min(Integer.MAX_VALUE, Files.exists(file) ? Files.size(file) : 0)));
+        recover();
+    }
+
+    /**
+     * Appends a pending record. The record is durable once {@link #sync(Record)} returned.
+     *
+     * @param payload the payload of the record
+     * @return the appended record
+     * @throws IOException if the journal is full or closed
+     */
+    public synchronized Record append(byte[] payload) throws IOException {
+        if (buffer == null) {
+            throw new IOException("Completion journal " + file + " is closed");
+        }
+        int required = HEADER_SIZE + payload.length;
+        if (position + required + END_MARKER_SIZE > capacity) {
+            compact();
+            if (position + required + END_MARKER_SIZE > capacity) {
+                throw new IOException("Completion journal " + file + " is full");
+            }
+        }
+
+        // the length is written last so that an incomplete record is never read
+        buffer.putInt(position + required, 0);
+        buffer.putInt(position + 4, checksum(payload));
+        buffer.put(position + 8, PENDING);
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + HEADER_SIZE);
+        target.put(payload);
+        buffer.putInt(position, payload.length);
+
+        Record record = new Record(position, payload);
+        record.sequence = ++appendedSequence;
+        pendingRecords.add(record);
+        position += required;
+        return record;
+    }
+
+    /**
+     * Forces the record and all records appended before it to the storage device, unless a previous force already
+     * covered it. Only one force is performed at a time, records appended meanwhile are covered by the next one.
+     *
+     * @param record the record
+     * @throws IOException if the journal is closed
+     */
+    public void sync(Record record) throws IOException {
+        MappedByteBuffer target;
+        long sequence;
+        synchronized (this) {
+            while (forcing) {
+                awaitForce();
+            }
+            if (record.sequence <= forcedSequence) {
+                return;
+            }
+            if (buffer == null) {
+                throw new IOException("Completion journal " + file + " is closed");
+            }
+            forcing = true;
+            target = buffer;
+            sequence = appendedSequence;
+        }
+        boolean forced = false;
+        try {
+            target.force();
+            forced = true;
+        } finally {
+            synchronized (this) {
+                forcing = false;
+                if (forced) {
+                    forcedSequence = Math.max(forcedSequence, sequence);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Marks the record as acknowledged. The journal is reset once all records are acknowledged.
+     *
+     * @param record the record
+     */
+    public synchronized void acknowledge(Record record) {
+        if (buffer == null || !pendingRecords.remove(record)) {
+            return;
+        }
+        buffer.put(record.offset + 8, ACKNOWLEDGED);
+        if (pendingRecords.isEmpty()) {
+            buffer.putInt(0, 0);
+            position = 0;
+        }
+    }
+
+    /**
+     * @return the pending records in the order they were appended
+     */
+    public synchronized List<Record> getPendingRecords() {
+        return new ArrayList<>(pendingRecords);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        while (forcing) {
+            awaitForce();
+        }
+        if (buffer != null) {
+            release();
+        }
+    }
+
+    protected void map(int size) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        capacity = size;
+    }
+
+    /**
+     * Forces and unmaps the buffer and closes the channel. The file cannot be replaced while it is mapped or open on
+     * some platforms, e.g. Windows, and the mapping would otherwise only be released by the garbage collector.
+     */
+    protected void release() throws IOException {
+        MappedByteBuffer mapped = buffer;
+        buffer = null;
+        try {
+            mapped.force();
+        } finally {
+            unmap(mapped);
+            channel.close();
+        }
+    }
+
+    protected void awaitForce() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for completion journal " + file, e);
+        }
+    }
+
+    protected void recover() {
+        position = 0;
+        while (position + HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > capacity) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(position + HEADER_SIZE);
+            source.get(payload);
+            if (checksum(payload) != buffer.getInt(position + 4)) {
+                log.warn("Ignoring incomplete record at offset {} of completion journal {}", position, file);
+                break;
+            }
+            if (buffer.get(position + 8) == PENDING) {
+                pendingRecords.add(new Record(position, payload));
+            }
+            position += HEADER_SIZE + length;
+        }
+        if (pendingRecords.isEmpty()) {
+            buffer.putInt(0, 0);
+            position = 0;
+        } else {
+            log.info("Recovered {} pending records from completion journal {}", pendingRecords.size(), file);
+        }
+    }
+
+    /**
+     * Rewrites the pending records to a new file which replaces the current one.
+     */
+    protected void compact() throws IOException {
+        while (forcing) {
+            awaitForce();
+        }
+        int pendingSize = 0;
+        for (Record record : pendingRecords) {
+            pendingSize += HEADER_SIZE + record.payload.length;
+        }
+        if (pendingSize == position) {
+            return;
+        }
+
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        ByteBuffer content = ByteBuffer.allocate(pendingSize + END_MARKER_SIZE);
+        for (Record record : pendingRecords) {
+            content.putInt(record.payload.length).putInt(checksum(record.payload)).put(PENDING).put(record.payload);
+        }
+        content.putInt(0).flip();
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining()) {
+                target.write(content);
+            }
+            target.force(true);
+        }
+
+        release();
+        try {
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // maps the current file again if it could not be replaced
+            map(capacity);
+        }
+        // the compacted file was forced and contains all pending records
+        forcedSequence = appendedSequence;
+        position = 0;
+        for (Record record : pendingRecords) {
+            record.offset = position;
+            position += HEADER_SIZE + record.payload.length;
+        }
+        log.debug("Compacted completion journal {} to {} pending records", file, pendingRecords.size());
+    }
+
+    /**
+     * Unmaps the buffer immediately. Accessing the buffer afterwards crashes the JVM.
+     */
+    protected static void unmap(MappedByteBuffer buffer) {
+        try {
+            try {
+                // Java 9+
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Cannot unmap completion journal, the mapping is released by the garbage collector: {}", e.toString());
+        }
+    }
+
+    protected static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A record of the journal.
+     */
+    public static class Record {
+
+        protected int offset;
+        protected long sequence;
+        protected final byte[] payload;
+
+        protected Record(int offset, byte[] payload) {
+            this.offset = offset;
+            this.payload = payload;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+}
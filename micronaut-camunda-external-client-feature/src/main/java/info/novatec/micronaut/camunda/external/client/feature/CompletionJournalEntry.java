@@ -0,0 +1,173 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.variable.impl.TypedValueField;
+
+import java.util.Map;
+
+/**
+ * The outcome of an external task as stored in the {@link CompletionJournal}. Variables are stored serialized, i.e.
+ * in the form they are sent to the engine.
+ */
+public class CompletionJournalEntry {
+
+    public enum Type {
+        COMPLETE, FAILURE, BPMN_ERROR
+    }
+
+    protected Type type;
+    protected String taskId;
+    protected String workerId;
+    protected Map<String, TypedValueField> variables;
+    protected Map<String, TypedValueField> localVariables;
+    protected String errorCode;
+    protected String errorMessage;
+    protected String errorDetails;
+    protected int retries;
+    protected long retryTimeout;
+    // the lock duration the task was fetched with, 0 if unknown
+    protected long lockDuration;
+
+    public static CompletionJournalEntry complete(String taskId, String workerId, Map<String, TypedValueField> variables, Map<String, TypedValueField> localVariables) {
+        CompletionJournalEntry entry = new CompletionJournalEntry(Type.COMPLETE, taskId, workerId);
+        entry.variables = variables;
+        entry.localVariables = localVariables;
+        return entry;
+    }
+
+    public static CompletionJournalEntry failure(String taskId, String workerId, String errorMessage, String errorDetails, int retries, long retryTimeout, Map<String, TypedValueField> variables, Map<String, TypedValueField> localVariables) {
+        CompletionJournalEntry entry = new CompletionJournalEntry(Type.FAILURE, taskId, workerId);
+        entry.errorMessage = errorMessage;
+        entry.errorDetails = errorDetails;
+        entry.retries = retries;
+        entry.retryTimeout = retryTimeout;
+        entry.variables = variables;
+        entry.localVariables = localVariables;
+        return entry;
+    }
+
+    public static CompletionJournalEntry bpmnError(String taskId, String workerId, String errorCode, String errorMessage, Map<String, TypedValueField> variables) {
+        CompletionJournalEntry entry = new CompletionJournalEntry(Type.BPMN_ERROR, taskId, workerId);
+        entry.errorCode = errorCode;
+        entry.errorMessage = errorMessage;
+        entry.variables = variables;
+        return entry;
+    }
+
+    public CompletionJournalEntry() {
+        // required for deserialization
+    }
+
+    protected CompletionJournalEntry(Type type, String taskId, String workerId) {
+        this.type = type;
+        this.taskId = taskId;
+        this.workerId = workerId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public Map<String, TypedValueField> getVariables() {
+        return variables;
+    }
+
+    public void setVariables(Map<String, TypedValueField> variables) {
+        this.variables = variables;
+    }
+
+    public Map<String, TypedValueField> getLocalVariables() {
+        return localVariables;
+    }
+
+    public void setLocalVariables(Map<String, TypedValueField> localVariables) {
+        this.localVariables = localVariables;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public String getErrorDetails() {
+        return errorDetails;
+    }
+
+    public void setErrorDetails(String errorDetails) {
+        this.errorDetails = errorDetails;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public void setRetries(int retries) {
+        this.retries = retries;
+    }
+
+    public long getRetryTimeout() {
+        return retryTimeout;
+    }
+
+    public void setRetryTimeout(long retryTimeout) {
+        this.retryTimeout = retryTimeout;
+    }
+
+    public long getLockDuration() {
+        return lockDuration;
+    }
+
+    public void setLockDuration(long lockDuration) {
+        this.lockDuration = lockDuration;
+    }
+
+    @Override
+    public String toString() {
+        return type + " of task " + taskId;
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.camunda.bpm.client.exception.RestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Appends the outcomes of external tasks to a {@link CompletionJournal} and sends them to the engine in the
+ * background. Failed requests are retried with an exponential backoff until the engine acknowledges or rejects the
+ * outcome or the maximum amount of retries is reached. The outcomes of a task are sent in the order they were appended
+ * and the lock of a task is extended while its outcome is pending.
+ * <p>
+ * A dispatcher thread hands the due outcomes to a fixed amount of sender threads, so that a slow request does not hold
+ * up the outcomes of other tasks. Only one outcome per task is in flight at a time.
+ * <p>
+ * An outcome is sent by the client which submitted it and the lock of its task is extended by the lock duration the
+ * task was fetched with. Pending outcomes of a previous run are recovered from the journal and sent once the first
+ * client is registered, preferably by a client with the worker id which locked the task.
+ */
+public class CompletionJournalFlusher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CompletionJournalFlusher.class);
+
+    protected static final long INITIAL_RETRY_DELAY = 500;
+    protected static final long MAX_RETRY_DELAY = 60000;
+    protected static final int DEFAULT_MAX_RETRIES = 10;
+    protected static final int SENDER_THREADS = 4;
+
+    protected final CompletionJournal journal;
+    protected final ObjectMapper objectMapper;
+    protected final int maxRetries;
+    protected final ExecutorService senders;
+    // clients may share a worker id but differ in their lock duration and request interceptors
+    protected final Map<MicronautEngineClient, Registration> registrations = new ConcurrentHashMap<>();
+    // guarded by this
+    protected final Map<String, Deque<PendingEntry>> pendingEntries = new LinkedHashMap<>();
+    protected Thread thread;
+    protected volatile boolean running;
+
+    /**
+     * Opens the journal and recovers its pending outcomes. Failed requests are retried up to 10 times.
+     *
+     * @param file the file of the journal
+     * @param capacity the size of the journal in bytes
+     * @throws IOException if the journal cannot be opened
+     */
+    public CompletionJournalFlusher(Path file, int capacity) throws IOException {
+        this(file, capacity, DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * Opens the journal and recovers its pending outcomes.
+     *
+     * @param file the file of the journal
+     * @param capacity the size of the journal in bytes
+     * @param maxRetries the maximum amount of retries of a failed request before the outcome is discarded
+     * @throws IOException if the journal cannot be opened
+     */
+    public CompletionJournalFlusher(Path file, int capacity, int maxRetries) throws IOException {
+        this.journal = new CompletionJournal(file, capacity);
+        this.maxRetries = maxRetries;
+        this.objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(SENDER_THREADS, runnable -> {
+            Thread sender = new Thread(runnable, "CompletionJournalSender-" + senderCount.incrementAndGet());
+            sender.setDaemon(true);
+            return sender;
+        });
+
+        for (CompletionJournal.Record record : journal.getPendingRecords()) {
+            try {
+                // extend the lock as soon as possible because the lock time of the previous run is unknown
+                enqueue(new PendingEntry(record, objectMapper.readValue(record.getPayload(), CompletionJournalEntry.class), null, 0));
+            } catch (IOException e) {
+                log.error("Discarding unreadable record of completion journal {}", file, e);
+                journal.acknowledge(record);
+            }
+        }
+    }
+
+    /**
+     * Registers a client which sends the outcomes of the tasks it locked and starts flushing if not yet started. The
+     * client must be ready to send requests, i.e. its typed values must be set.
+     *
+     * @param engineClient the engine client
+     * @param lockDuration the duration in milliseconds by which the lock of a pending task of this client is extended
+     *                     if the lock duration the task was fetched with is unknown
+     */
+    public synchronized void register(MicronautEngineClient engineClient, long lockDuration) {
+        registrations.values().stream().findAny().ifPresent(other -> {
+            if (!other.engineClient.getBaseUrl().equals(engineClient.getBaseUrl())) {
+                throw new IllegalStateException("Completion journal " + journal.file + " is already used by a client connected to " + other.engineClient.getBaseUrl());
+            }
+        });
+        registrations.put(engineClient, new Registration(engineClient, lockDuration));
+        engineClient.setCompletionJournalFlusher(this);
+
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this::run, "CompletionJournalFlusher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Appends the outcome of a task to the journal and returns once it is forced to the storage device. Outcomes
+     * submitted concurrently are forced together.
+     *
+     * @param engineClient the registered client which sends the outcome
+     * @param entry the outcome
+     * @return false if the outcome could not be appended, e.g. because the journal is full, and must be sent directly
+     */
+    public boolean submit(MicronautEngineClient engineClient, CompletionJournalEntry entry) {
+        Registration registration = registrations.get(engineClient);
+        if (registration == null) {
+            return false;
+        }
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(entry);
+        } catch (IOException e) {
+            log.warn("Cannot serialize {}, sending it directly", entry, e);
+            return false;
+        }
+        CompletionJournal.Record record;
+        synchronized (this) {
+            if (!running) {
+                return false;
+            }
+            try {
+                record = journal.append(payload);
+            } catch (IOException e) {
+                log.warn("Cannot append {} to completion journal, sending it directly: {}", entry, e.getMessage());
+                return false;
+            }
+            enqueue(new PendingEntry(record, entry, registration, System.currentTimeMillis() + getLockDuration(entry, registration) / 2));
+            notifyAll();
+        }
+        try {
+            journal.sync(record);
+        } catch (IOException e) {
+            log.warn("Cannot force completion journal, {} is not recovered after a crash: {}", entry, e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of outcomes which have not been acknowledged by the engine yet
+     */
+    public synchronized int getPendingCount() {
+        return pendingEntries.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    /**
+     * Stops flushing. Pending outcomes remain in the journal and are sent after a restart.
+     */
+    @Override
+    public void close() {
+        Thread flusherThread;
+        synchronized (this) {
+            running = false;
+            flusherThread = thread;
+            notifyAll();
+        }
+        try {
+            if (flusherThread != null) {
+                flusherThread.join(10000);
+            }
+            senders.shutdown();
+            senders.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Failed to close completion journal {}", journal.file, e);
+        }
+        int pending = getPendingCount();
+        if (pending > 0) {
+            log.info("{} outcomes remain in completion journal {} and are sent after a restart", pending, journal.file);
+        }
+    }
+
+    protected void enqueue(PendingEntry pendingEntry) {
+        pendingEntries.computeIfAbsent(pendingEntry.entry.getTaskId(), taskId -> new ArrayDeque<>()).add(pendingEntry);
+    }
+
+    protected void run() {
+        while (running) {
+            List<PendingEntry> dueEntries = new ArrayList<>();
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                long nextDue = now + MAX_RETRY_DELAY;
+                // only the first entry of each task is processed to keep the order per task
+                for (Deque<PendingEntry> entries : pendingEntries.values()) {
+                    PendingEntry pendingEntry = entries.peek();
+                    if (pendingEntry.inFlight) {
+                        continue;
+                    }
+                    long due = Math.min(pendingEntry.nextAttemptTime, pendingEntry.nextLockExtensionTime);
+                    if (due <= now) {
+                        pendingEntry.inFlight = true;
+                        dueEntries.add(pendingEntry);
+                    } else {
+                        nextDue = Math.min(nextDue, due);
+                    }
+                }
+                if (dueEntries.isEmpty()) {
+                    try {
+                        // woken up by submitted and processed entries
+                        wait(nextDue - now);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    continue;
+                }
+            }
+            for (PendingEntry pendingEntry : dueEntries) {
+                try {
+                    senders.execute(() -> process(pendingEntry));
+                } catch (RejectedExecutionException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    protected void process(PendingEntry pendingEntry) {
+        try {
+            if (running) {
+                sendOrExtendLock(pendingEntry);
+            }
+        } finally {
+            synchronized (this) {
+                pendingEntry.inFlight = false;
+                notifyAll();
+            }
+        }
+    }
+
+    protected void sendOrExtendLock(PendingEntry pendingEntry) {
+        CompletionJournalEntry entry = pendingEntry.entry;
+        Registration registration = getRegistration(pendingEntry);
+        long now = System.currentTimeMillis();
+
+        if (pendingEntry.nextAttemptTime <= now) {
+            try {
+                registration.engineClient.send(entry);
+                acknowledge(pendingEntry);
+                return;
+            } catch (RuntimeException e) {
+                if (isRejected(e)) {
+                    log.error("Engine rejected {}, discarding it", entry, e);
+                    acknowledge(pendingEntry);
+                    return;
+                }
+                pendingEntry.attempts++;
+                if (pendingEntry.attempts > maxRetries) {
+                    // the lock is not extended anymore, the task is fetched again once it has expired
+                    log.error("Failed to send {} after {} attempts, discarding it", entry, pendingEntry.attempts, e);
+                    acknowledge(pendingEntry);
+                    return;
+                }
+                pendingEntry.nextAttemptTime = now + retryDelay(pendingEntry.attempts);
+                if (pendingEntry.attempts == 1) {
+                    // keep the task locked while the engine is unavailable
+                    pendingEntry.nextLockExtensionTime = now;
+                }
+                log.warn("Failed to send {} (attempt {}), retrying in {}ms: {}", entry, pendingEntry.attempts,
+                        pendingEntry.nextAttemptTime - now, e.getMessage());
+            }
+        }
+
+        if (pendingEntry.nextLockExtensionTime <= now) {
+            try {
+                long lockDuration = getLockDuration(entry, registration);
+                registration.engineClient.extendLock(entry.getTaskId(), lockDuration);
+                pendingEntry.nextLockExtensionTime = now + lockDuration / 2;
+            } catch (RuntimeException e) {
+                pendingEntry.nextLockExtensionTime = pendingEntry.nextAttemptTime;
+                log.debug("Failed to extend lock of task {}: {}", entry.getTaskId(), e.getMessage());
+            }
+        }
+    }
+
+    protected Registration getRegistration(PendingEntry pendingEntry) {
+        if (pendingEntry.registration == null) {
+            // recovered from a previous run, a client with another worker id is only accepted if the lock was released
+            String workerId = pendingEntry.entry.getWorkerId();
+            pendingEntry.registration = registrations.values().stream()
+                    .filter(registration -> registration.engineClient.getWorkerId().equals(workerId))
+                    .findFirst()
+                    .orElseGet(() -> registrations.values().iterator().next());
+        }
+        return pendingEntry.registration;
+    }
+
+    protected long getLockDuration(CompletionJournalEntry entry, Registration registration) {
+        return entry.getLockDuration() > 0 ? entry.getLockDuration() : registration.lockDuration;
+    }
+
+    protected synchronized void acknowledge(PendingEntry pendingEntry) {
+        journal.acknowledge(pendingEntry.record);
+        Deque<PendingEntry> entries = pendingEntries.get(pendingEntry.entry.getTaskId());
+        entries.remove(pendingEntry);
+        if (entries.isEmpty()) {
+            pendingEntries.remove(pendingEntry.entry.getTaskId());
+        }
+    }
+
+    /**
+     * Requests with an invalid outcome, e.g. for a task which does not exist anymore or is locked by another worker,
+     * must not be retried.
+     */
+    protected boolean isRejected(RuntimeException e) {
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof RestException)) {
+            cause = cause.getCause();
+        }
+        if (cause == null) {
+            return false;
+        }
+        Integer httpStatusCode = ((RestException) cause).getHttpStatusCode();
+        return httpStatusCode != null && (httpStatusCode == 400 || httpStatusCode == 404);
+    }
+
+    protected long retryDelay(int attempts) {
+        return Math.min(MAX_RETRY_DELAY, INITIAL_RETRY_DELAY << Math.min(attempts - 1, 16));
+    }
+
+    protected static class Registration {
+
+        protected final MicronautEngineClient engineClient;
+        protected final long lockDuration;
+
+        protected Registration(MicronautEngineClient engineClient, long lockDuration) {
+            this.engineClient = engineClient;
+            this.lockDuration = lockDuration;
+        }
+    }
+
+    protected static class PendingEntry {
+
+        protected final CompletionJournal.Record record;
+        protected final CompletionJournalEntry entry;
+        // guarded by the flusher, the other fields are only changed while the entry is in flight
+        protected boolean inFlight;
+        protected Registration registration;
+        protected int attempts;
+        protected long nextAttemptTime;
+        protected long nextLockExtensionTime;
+
+        protected PendingEntry(CompletionJournal.Record record, CompletionJournalEntry entry, Registration registration, long nextLockExtensionTime) {
+            this.record = record;
+            this.entry = entry;
+            this.registration = registration;
+            this.nextLockExtensionTime = nextLockExtensionTime;
+        }
+    }
+}
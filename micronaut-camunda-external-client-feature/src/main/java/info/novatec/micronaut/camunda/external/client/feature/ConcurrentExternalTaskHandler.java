@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+import org.camunda.bpm.client.task.ExternalTaskService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the tasks of a single topic on a bounded pool of worker threads instead of the fetching thread of the
+ * external task client. The number of free slots is used by {@link MicronautTopicSubscriptionManager} to only fetch
+ * as many tasks as can be started right away.
+ */
+public class ConcurrentExternalTaskHandler implements CapacityAwareExternalTaskHandler, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentExternalTaskHandler.class);
+
+    protected final ExternalTaskHandler externalTaskHandler;
+    protected final String topicName;
+    protected final int concurrency;
+    protected final ExecutorService executorService;
+    protected final AtomicInteger activeTasks = new AtomicInteger();
+
+    protected volatile Runnable slotReleasedListener = () -> { };
+
+    public ConcurrentExternalTaskHandler(ExternalTaskHandler externalTaskHandler, String topicName, int concurrency, boolean virtualThreads) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency for topic '" + topicName + "' must be greater than zero");
+        }
+        this.externalTaskHandler = externalTaskHandler;
+        this.topicName = topicName;
+        this.concurrency = concurrency;
+        this.executorService = Executors.newFixedThreadPool(concurrency, createThreadFactory(topicName, virtualThreads));
+    }
+
+    @Override
+    public void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        activeTasks.incrementAndGet();
+        try {
+            executorService.execute(() -> executeTask(externalTask, externalTaskService));
+        } catch (RejectedExecutionException e) {
+            releaseSlot();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getFreeSlots() {
+        return Math.max(0, concurrency - activeTasks.get());
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public ExternalTaskHandler getExternalTaskHandler() {
+        return externalTaskHandler;
+    }
+
+    @Override
+    public void setSlotReleasedListener(Runnable slotReleasedListener) {
+        this.slotReleasedListener = slotReleasedListener;
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdown();
+    }
+
+    protected void executeTask(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        try {
+            externalTaskHandler.execute(externalTask, externalTaskService);
+        } catch (Throwable e) {
+            log.error("Exception while executing external task handler for topic '{}'", topicName, e);
+        } finally {
+            releaseSlot();
+        }
+    }
+
+    protected void releaseSlot() {
+        activeTasks.decrementAndGet();
+        slotReleasedListener.run();
+    }
+
+    protected ThreadFactory createThreadFactory(String topicName, boolean virtualThreads) {
+        String namePrefix = "external-task-" + topicName + "-";
+        if (virtualThreads) {
+            try {
+                // Thread.ofVirtual() is only available on JDK 21+ and therefore resolved reflectively
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Method name = builderClass.getMethod("name", String.class, long.class);
+                Method factory = builderClass.getMethod("factory");
+                return (ThreadFactory) factory.invoke(name.invoke(builder, namePrefix, 0L));
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads are not supported by this JVM. Using platform threads for topic '{}'", topicName);
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
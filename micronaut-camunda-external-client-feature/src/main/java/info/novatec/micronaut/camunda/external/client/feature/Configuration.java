@@ -114,6 +114,63 @@ public interface Configuration {
      */
     Optional<Boolean> getDisableBackoffStrategy();
 
+    /**
+     * The interval in milliseconds in which locks of subscriptions with auto-extend-lock are extended. Extensions due
+     * within the same interval are performed together. This information is optional. Default is 1000.
+     *
+     * @return the lock extension granularity in milliseconds
+     */
+    Optional<Long> getLockExtensionGranularity();
+
+    /**
+     * Replaces the backoff strategy with a controller which adjusts the amount of fetched tasks between min tasks and
+     * max tasks depending on the lock time left after handling the fetched tasks. This information is optional.
+     * Default is false.
+     *
+     * @return if adaptive fetching should be enabled
+     */
+    Optional<Boolean> getAdaptiveFetching();
+
+    /**
+     * The minimum amount of tasks fetched within one request if adaptive fetching is enabled. This information is
+     * optional. Default is 1.
+     *
+     * @return the minimum amount of tasks fetched within one request
+     */
+    Optional<Integer> getMinTasks();
+
+    /**
+     * The maximum time in milliseconds to wait between fetch and lock requests if adaptive fetching is enabled and no
+     * tasks are available. This information is optional. Default is 60000.
+     *
+     * @return the maximum backoff time in milliseconds
+     */
+    Optional<Long> getMaxBackoffTime();
+
+    /**
+     * The path of a local journal to which the outcomes of tasks are appended instead of sending them to the engine
+     * directly. The outcomes are sent in the background and recovered from the journal after a restart. This
+     * information is optional. By default, outcomes are sent directly.
+     *
+     * @return the path of the completion journal
+     */
+    Optional<String> getCompletionJournal();
+
+    /**
+     * The size of the completion journal in bytes. This information is optional. Default is 67108864 (64 MB).
+     *
+     * @return the size of the completion journal in bytes
+     */
+    Optional<Integer> getCompletionJournalSize();
+
+    /**
+     * The maximum amount of retries of an outcome which the engine failed to accept. Afterwards, the outcome is
+     * discarded and the lock of the task is not extended anymore. This information is optional. Default is 10.
+     *
+     * @return the maximum amount of retries of an outcome
+     */
+    Optional<Integer> getCompletionJournalMaxRetries();
+
     /**
      * A map containing configuration properties for handlers. The values defined in the annotation get overwritten.
      *
@@ -135,6 +192,11 @@ public interface Configuration {
         private Boolean withoutTenantId;
         private String[] tenantIdIn;
         private Boolean includeExtensionProperties;
+        private Integer concurrency;
+        private Boolean virtualThreads;
+        private Boolean autoExtendLock;
+        private String client;
+        private Integer fetchLoops;
 
         public Long getLockDuration() {
             return lockDuration;
@@ -183,6 +245,26 @@ public interface Configuration {
         public Boolean getIncludeExtensionProperties() {
             return includeExtensionProperties;
         }
+
+        public Integer getConcurrency() {
+            return concurrency;
+        }
+
+        public Boolean getVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public Boolean getAutoExtendLock() {
+            return autoExtendLock;
+        }
+
+        public String getClient() {
+            return client;
+        }
+
+        public Integer getFetchLoops() {
+            return fetchLoops;
+        }
     }
 
 }
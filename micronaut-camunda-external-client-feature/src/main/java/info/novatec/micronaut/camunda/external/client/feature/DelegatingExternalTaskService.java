@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskService;
+
+import java.util.Map;
+
+/**
+ * Base class for decorators of the {@link ExternalTaskService} passed to a handler. Every method delegates to the same
+ * method of the wrapped service, so subclasses only override the methods they are interested in.
+ */
+public class DelegatingExternalTaskService implements ExternalTaskService {
+
+    protected final ExternalTaskService delegate;
+
+    public DelegatingExternalTaskService(ExternalTaskService delegate) {
+        this.delegate = delegate;
+    }
+
+    public ExternalTaskService getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void lock(String externalTaskId, long lockDuration) {
+        delegate.lock(externalTaskId, lockDuration);
+    }
+
+    @Override
+    public void lock(ExternalTask externalTask, long lockDuration) {
+        delegate.lock(externalTask, lockDuration);
+    }
+
+    @Override
+    public void unlock(ExternalTask externalTask) {
+        delegate.unlock(externalTask);
+    }
+
+    @Override
+    public void complete(ExternalTask externalTask) {
+        delegate.complete(externalTask);
+    }
+
+    @Override
+    public void setVariables(String processInstanceId, Map<String, Object> variables) {
+        delegate.setVariables(processInstanceId, variables);
+    }
+
+    @Override
+    public void setVariables(ExternalTask externalTask, Map<String, Object> variables) {
+        delegate.setVariables(externalTask, variables);
+    }
+
+    @Override
+    public void complete(ExternalTask externalTask, Map<String, Object> variables) {
+        delegate.complete(externalTask, variables);
+    }
+
+    @Override
+    public void complete(ExternalTask externalTask, Map<String, Object> variables, Map<String, Object> localVariables) {
+        delegate.complete(externalTask, variables, localVariables);
+    }
+
+    @Override
+    public void complete(String externalTaskId, Map<String, Object> variables, Map<String, Object> localVariables) {
+        delegate.complete(externalTaskId, variables, localVariables);
+    }
+
+    @Override
+    public void handleFailure(ExternalTask externalTask, String errorMessage, String errorDetails, int retries, long retryTimeout) {
+        delegate.handleFailure(externalTask, errorMessage, errorDetails, retries, retryTimeout);
+    }
+
+    @Override
+    public void handleFailure(String externalTaskId, String errorMessage, String errorDetails, int retries, long retryTimeout) {
+        delegate.handleFailure(externalTaskId, errorMessage, errorDetails, retries, retryTimeout);
+    }
+
+    @Override
+    public void handleFailure(String externalTaskId, String errorMessage, String errorDetails, int retries, long retryTimeout, Map<String, Object> variables, Map<String, Object> localVariables) {
+        delegate.handleFailure(externalTaskId, errorMessage, errorDetails, retries, retryTimeout, variables, localVariables);
+    }
+
+    @Override
+    public void handleBpmnError(ExternalTask externalTask, String errorCode) {
+        delegate.handleBpmnError(externalTask, errorCode);
+    }
+
+    @Override
+    public void handleBpmnError(ExternalTask externalTask, String errorCode, String errorMessage) {
+        delegate.handleBpmnError(externalTask, errorCode, errorMessage);
+    }
+
+    @Override
+    public void handleBpmnError(ExternalTask externalTask, String errorCode, String errorMessage, Map<String, Object> variables) {
+        delegate.handleBpmnError(externalTask, errorCode, errorMessage, variables);
+    }
+
+    @Override
+    public void handleBpmnError(String externalTaskId, String errorCode, String errorMessage, Map<String, Object> variables) {
+        delegate.handleBpmnError(externalTaskId, errorCode, errorMessage, variables);
+    }
+
+    @Override
+    public void extendLock(ExternalTask externalTask, long newDuration) {
+        delegate.extendLock(externalTask, newDuration);
+    }
+
+    @Override
+    public void extendLock(String externalTaskId, long newDuration) {
+        delegate.extendLock(externalTaskId, newDuration);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import io.micronaut.context.BeanContext;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.inject.qualifiers.Qualifiers;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.camunda.bpm.client.ExternalTaskClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Builds external task clients from the {@link Configuration} and optionally a named {@link ClientConfiguration}.
+ * Used by {@link ExternalTaskClientFactory} and to create additional fetch loops for a topic.
+ */
+@Singleton
+public class ExternalTaskClientCreator {
+
+    private static final Logger log = LoggerFactory.getLogger(ExternalTaskClientCreator.class);
+
+    protected static final long DEFAULT_MAX_BACKOFF_TIME = 60000;
+    protected static final int DEFAULT_COMPLETION_JOURNAL_SIZE = 64 * 1024 * 1024;
+    protected static final int DEFAULT_COMPLETION_JOURNAL_MAX_RETRIES = 10;
+
+    protected final BeanContext beanContext;
+    protected final Configuration configuration;
+    protected final ExternalClientCustomizer externalClientCustomizer;
+    protected final List<FetchAndLockListener> fetchAndLockListeners;
+    protected final Optional<RequestExecutorFactory> requestExecutorFactory;
+    // clients of the same configuration, i.e. additional fetch loops, share the completion journal
+    protected final Map<Path, CompletionJournalFlusher> completionJournalFlushers = new HashMap<>();
+
+    public ExternalTaskClientCreator(BeanContext beanContext,
+                                     Configuration configuration,
+                                     ExternalClientCustomizer externalClientCustomizer,
+                                     List<FetchAndLockListener> fetchAndLockListeners,
+                                     Optional<RequestExecutorFactory> requestExecutorFactory) {
+        this.beanContext = beanContext;
+        this.configuration = configuration;
+        this.externalClientCustomizer = externalClientCustomizer;
+        this.fetchAndLockListeners = fetchAndLockListeners;
+        this.requestExecutorFactory = requestExecutorFactory;
+    }
+
+    /**
+     * Creates a new client.
+     *
+     * @param clientName the name of the client configuration or null for the default client
+     * @return the new client
+     */
+    public ExternalTaskClient create(@Nullable String clientName) {
+        if (clientName == null) {
+            return create((ClientConfiguration) null);
+        }
+        ClientConfiguration clientConfiguration = beanContext.findBean(ClientConfiguration.class, Qualifiers.byName(clientName))
+                .orElseThrow(() -> new IllegalArgumentException("No external task client configured with name '" + clientName + "'"));
+        return create(clientConfiguration);
+    }
+
+    /**
+     * Creates a new client.
+     *
+     * @param clientConfiguration the named client configuration or null for the default client
+     * @return the new client
+     */
+    public ExternalTaskClient create(@Nullable ClientConfiguration clientConfiguration) {
+        MicronautExternalTaskClientBuilder clientBuilder = new MicronautExternalTaskClientBuilder();
+
+        clientBuilder.baseUrl(configuration.getBaseUrl());
+        configuration.getWorkerId().ifPresent(clientBuilder::workerId);
+        configuration.getMaxTasks().ifPresent(clientBuilder::maxTasks);
+        configuration.getUsePriority().ifPresent(clientBuilder::usePriority);
+        configuration.getDefaultSerializationFormat().ifPresent(clientBuilder::defaultSerializationFormat);
+        configuration.getDateFormat().ifPresent(clientBuilder::dateFormat);
+        configuration.getAsyncResponseTimeout().ifPresent(clientBuilder::asyncResponseTimeout);
+        configuration.getLockDuration().ifPresent(clientBuilder::lockDuration);
+        boolean disableAutoFetching = configuration.getDisableAutoFetching().orElse(false);
+        boolean disableBackoffStrategy = configuration.getDisableBackoffStrategy().orElse(false);
+        boolean adaptiveFetching = configuration.getAdaptiveFetching().orElse(false);
+        int minTasks = configuration.getMinTasks().orElse(1);
+        String completionJournal = configuration.getCompletionJournal().orElse(null);
+
+        if (clientConfiguration != null) {
+            clientConfiguration.getBaseUrl().ifPresent(clientBuilder::baseUrl);
+            clientConfiguration.getWorkerId().ifPresent(clientBuilder::workerId);
+            clientConfiguration.getMaxTasks().ifPresent(clientBuilder::maxTasks);
+            clientConfiguration.getUsePriority().ifPresent(clientBuilder::usePriority);
+            clientConfiguration.getAsyncResponseTimeout().ifPresent(clientBuilder::asyncResponseTimeout);
+            clientConfiguration.getLockDuration().ifPresent(clientBuilder::lockDuration);
+            disableAutoFetching = clientConfiguration.getDisableAutoFetching().orElse(disableAutoFetching);
+            disableBackoffStrategy = clientConfiguration.getDisableBackoffStrategy().orElse(disableBackoffStrategy);
+            adaptiveFetching = clientConfiguration.getAdaptiveFetching().orElse(adaptiveFetching);
+            minTasks = clientConfiguration.getMinTasks().orElse(minTasks);
+            completionJournal = clientConfiguration.getCompletionJournal().orElse(completionJournal);
+        }
+
+        if (disableAutoFetching) {
+            clientBuilder.disableAutoFetching();
+        }
+        if (disableBackoffStrategy) {
+            clientBuilder.disableBackoffStrategy();
+        }
+        if (adaptiveFetching) {
+            if (disableBackoffStrategy) {
+                log.warn("Adaptive fetching has no effect because the backoff strategy is disabled");
+            }
+            clientBuilder.adaptiveFetching(minTasks, configuration.getMaxBackoffTime().orElse(DEFAULT_MAX_BACKOFF_TIME));
+        }
+
+        if (completionJournal != null) {
+            clientBuilder.completionJournal(getCompletionJournalFlusher(completionJournal));
+        }
+
+        fetchAndLockListeners.forEach(clientBuilder::addFetchAndLockListener);
+        requestExecutorFactory.ifPresent(clientBuilder::requestExecutorFactory);
+
+        externalClientCustomizer.customize(clientBuilder);
+
+        ExternalTaskClient client = clientBuilder.build();
+
+        if (clientConfiguration != null) {
+            log.info("ExternalTaskClient '{}' connected to {} and ready to process tasks", clientConfiguration.getName(), clientBuilder.getBaseUrl());
+        } else {
+            log.info("ExternalTaskClient connected to {} and ready to process tasks", clientBuilder.getBaseUrl());
+        }
+
+        return client;
+    }
+
+    /**
+     * Stops flushing the completion journals. Pending outcomes are sent after a restart.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        completionJournalFlushers.values().forEach(CompletionJournalFlusher::close);
+        completionJournalFlushers.clear();
+    }
+
+    protected synchronized CompletionJournalFlusher getCompletionJournalFlusher(String completionJournal) {
+        Path file = Paths.get(completionJournal).toAbsolutePath().normalize();
+        CompletionJournalFlusher completionJournalFlusher = completionJournalFlushers.get(file);
+        if (completionJournalFlusher == null) {
+            try {
+                completionJournalFlusher = new CompletionJournalFlusher(file, configuration.getCompletionJournalSize().orElse(DEFAULT_COMPLETION_JOURNAL_SIZE),
+                        configuration.getCompletionJournalMaxRetries().orElse(DEFAULT_COMPLETION_JOURNAL_MAX_RETRIES));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open completion journal " + file, e);
+            }
+            completionJournalFlushers.put(file, completionJournalFlusher);
+            log.info("Outcomes of external tasks are journaled in {}", file);
+        }
+        return completionJournalFlusher;
+    }
+}
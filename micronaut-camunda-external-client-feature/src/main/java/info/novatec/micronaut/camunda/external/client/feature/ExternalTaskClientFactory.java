@@ -15,13 +15,11 @@
  */
 package info.novatec.micronaut.camunda.external.client.feature;
 
+import io.micronaut.context.annotation.EachBean;
 import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Primary;
 import jakarta.inject.Singleton;
 import org.camunda.bpm.client.ExternalTaskClient;
-import org.camunda.bpm.client.ExternalTaskClientBuilder;
-import org.camunda.bpm.client.impl.ExternalTaskClientImpl;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * @author Martin Sawilla
@@ -29,39 +27,14 @@ import org.slf4j.LoggerFactory;
 @Factory
 public class ExternalTaskClientFactory {
 
-    private static final Logger log = LoggerFactory.getLogger(ExternalTaskClientFactory.class);
-
     @Singleton
-    ExternalTaskClient buildClient(Configuration configuration, ExternalClientCustomizer externalClientCustomizer) {
-
-        ExternalTaskClientBuilder clientBuilder = ExternalTaskClient.create();
-
-        clientBuilder.baseUrl(configuration.getBaseUrl());
-        configuration.getWorkerId().ifPresent(clientBuilder::workerId);
-        configuration.getMaxTasks().ifPresent(clientBuilder::maxTasks);
-        configuration.getUsePriority().ifPresent(clientBuilder::usePriority);
-        configuration.getDefaultSerializationFormat().ifPresent(clientBuilder::defaultSerializationFormat);
-        configuration.getDateFormat().ifPresent(clientBuilder::dateFormat);
-        configuration.getAsyncResponseTimeout().ifPresent(clientBuilder::asyncResponseTimeout);
-        configuration.getLockDuration().ifPresent(clientBuilder::lockDuration);
-        configuration.getDisableAutoFetching().ifPresent(it -> {
-            if(it) {
-                clientBuilder.disableAutoFetching();
-            }
-        });
-        configuration.getDisableBackoffStrategy().ifPresent(it -> {
-            if(it) {
-                clientBuilder.disableBackoffStrategy();
-            }
-        });
-
-        externalClientCustomizer.customize(clientBuilder);
-
-        ExternalTaskClient client = clientBuilder.build();
-
-        String baseUrl = ((ExternalTaskClientImpl) client).getTopicSubscriptionManager().getEngineClient().getBaseUrl();
-        log.info("ExternalTaskClient connected to {} and ready to process tasks", baseUrl);
+    @Primary
+    ExternalTaskClient buildClient(ExternalTaskClientCreator externalTaskClientCreator) {
+        return externalTaskClientCreator.create((ClientConfiguration) null);
+    }
 
-        return client;
+    @EachBean(ClientConfiguration.class)
+    ExternalTaskClient buildNamedClient(ClientConfiguration clientConfiguration, ExternalTaskClientCreator externalTaskClientCreator) {
+        return externalTaskClientCreator.create(clientConfiguration);
     }
 }
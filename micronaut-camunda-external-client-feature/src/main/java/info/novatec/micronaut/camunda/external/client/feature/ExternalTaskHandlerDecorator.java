@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+
+/**
+ * Allows to wrap every handler registered by {@link ExternalWorkerSubscriptionCreator}, e.g. to collect metrics. All
+ * beans implementing this interface are applied in their {@link io.micronaut.core.order.Ordered order}. The decorated
+ * handler is invoked on the thread executing the task, i.e. on the worker pool if a concurrency is configured.
+ */
+@FunctionalInterface
+public interface ExternalTaskHandlerDecorator {
+
+    /**
+     * @param externalTaskHandler the handler to decorate
+     * @param topicName the topic the handler is subscribed to
+     * @param lockDuration the effective lock duration of the subscription in milliseconds
+     * @return the decorated handler
+     */
+    ExternalTaskHandler decorate(ExternalTaskHandler externalTaskHandler, String topicName, long lockDuration);
+
+    /**
+     * Wraps an {@link AsyncExternalTaskHandler} whose execution only ends when the returned stage completes. The
+     * handler which starts the execution and reports the outcome is additionally wrapped with
+     * {@link #decorate(ExternalTaskHandler, String, long)}.
+     *
+     * @param asyncExternalTaskHandler the handler to decorate
+     * @param topicName the topic the handler is subscribed to
+     * @param lockDuration the effective lock duration of the subscription in milliseconds
+     * @return the decorated handler
+     */
+    default AsyncExternalTaskHandler decorateAsync(AsyncExternalTaskHandler asyncExternalTaskHandler, String topicName, long lockDuration) {
+        return asyncExternalTaskHandler;
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskService;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Result of an {@link AsyncExternalTaskHandler} or {@link ReactiveExternalTaskHandler} which is reported to the
+ * engine once it is available.
+ */
+public abstract class ExternalTaskOutcome {
+
+    /**
+     * Completes the task.
+     *
+     * @return the outcome
+     */
+    public static ExternalTaskOutcome complete() {
+        return complete(Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Completes the task.
+     *
+     * @param variables the variables to set on the process instance
+     * @return the outcome
+     */
+    public static ExternalTaskOutcome complete(Map<String, Object> variables) {
+        return complete(variables, Collections.emptyMap());
+    }
+
+    /**
+     * Completes the task.
+     *
+     * @param variables the variables to set on the process instance
+     * @param localVariables the variables to set on the execution of the task
+     * @return the outcome
+     */
+    public static ExternalTaskOutcome complete(Map<String, Object> variables, Map<String, Object> localVariables) {
+        return new ExternalTaskOutcome() {
+            @Override
+            public void report(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+                externalTaskService.complete(externalTask, variables, localVariables);
+            }
+        };
+    }
+
+    /**
+     * Reports a failure of the task.
+     *
+     * @param errorMessage the short error message
+     * @param errorDetails the detailed error description
+     * @param retries the remaining retries, an incident is created if 0
+     * @param retryTimeout the time in milliseconds until the task can be fetched again
+     * @return the outcome
+     */
+    public static ExternalTaskOutcome failure(String errorMessage, String errorDetails, int retries, long retryTimeout) {
+        return new ExternalTaskOutcome() {
+            @Override
+            public void report(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+                externalTaskService.handleFailure(externalTask, errorMessage, errorDetails, retries, retryTimeout);
+            }
+        };
+    }
+
+    /**
+     * Reports a BPMN error which can be handled in the process model.
+     *
+     * @param errorCode the error code of the BPMN error
+     * @return the outcome
+     */
+    public static ExternalTaskOutcome bpmnError(String errorCode) {
+        return bpmnError(errorCode, null, Collections.emptyMap());
+    }
+
+    /**
+     * Reports a BPMN error which can be handled in the process model.
+     *
+     * @param errorCode the error code of the BPMN error
+     * @param errorMessage the error message
+     * @param variables the variables to set on the process instance
+     * @return the outcome
+     */
+    public static ExternalTaskOutcome bpmnError(String errorCode, String errorMessage, Map<String, Object> variables) {
+        return new ExternalTaskOutcome() {
+            @Override
+            public void report(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+                externalTaskService.handleBpmnError(externalTask, errorCode, errorMessage, variables);
+            }
+        };
+    }
+
+    /**
+     * Reports the outcome to the engine.
+     *
+     * @param externalTask the task
+     * @param externalTaskService the service to report the outcome with
+     */
+    public abstract void report(ExternalTask externalTask, ExternalTaskService externalTaskService);
+
+}
@@ -52,4 +52,14 @@ public @interface ExternalTaskSubscription {
 
     boolean includeExtensionProperties() default false;
 
+    int concurrency() default 0;
+
+    boolean virtualThreads() default false;
+
+    boolean autoExtendLock() default false;
+
+    String client() default "";
+
+    int fetchLoops() default 1;
+
 }
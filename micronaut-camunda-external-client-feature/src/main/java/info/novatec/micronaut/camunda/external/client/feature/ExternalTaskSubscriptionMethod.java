@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import io.micronaut.context.annotation.Executable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Subscribes a method of a bean to the topic of the nested {@link ExternalTaskSubscription}, e.g.
+ * {@code @ExternalTaskSubscriptionMethod(@ExternalTaskSubscription(topicName = "calculate"))}. Parameters are bound
+ * with {@link Variable}. Unlike the class level annotation, only the annotated methods are made executable.
+ */
+@Target(ElementType.METHOD)
+@Documented
+@Executable(processOnStartup = true)
+public @interface ExternalTaskSubscriptionMethod {
+
+    /**
+     * @return the subscription of the method
+     */
+    ExternalTaskSubscription value();
+
+}
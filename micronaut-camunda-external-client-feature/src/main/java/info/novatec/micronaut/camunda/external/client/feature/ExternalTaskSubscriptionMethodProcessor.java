@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import io.micronaut.context.processor.ExecutableMethodProcessor;
+import io.micronaut.inject.BeanDefinition;
+import io.micronaut.inject.ExecutableMethod;
+import jakarta.inject.Singleton;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the methods annotated with {@link ExternalTaskSubscriptionMethod} at startup. The methods are subscribed by
+ * {@link ExternalWorkerSubscriptionCreator} together with the handler classes.
+ */
+@Singleton
+public class ExternalTaskSubscriptionMethodProcessor implements ExecutableMethodProcessor<ExternalTaskSubscriptionMethod> {
+
+    protected final List<SubscriptionMethod> subscriptionMethods = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void process(BeanDefinition<?> beanDefinition, ExecutableMethod<?, ?> method) {
+        subscriptionMethods.add(new SubscriptionMethod(beanDefinition, method));
+    }
+
+    public List<SubscriptionMethod> getSubscriptionMethods() {
+        synchronized (subscriptionMethods) {
+            return new ArrayList<>(subscriptionMethods);
+        }
+    }
+
+    public static class SubscriptionMethod {
+
+        private final BeanDefinition<?> beanDefinition;
+        private final ExecutableMethod<?, ?> method;
+
+        public SubscriptionMethod(BeanDefinition<?> beanDefinition, ExecutableMethod<?, ?> method) {
+            this.beanDefinition = beanDefinition;
+            this.method = method;
+        }
+
+        public BeanDefinition<?> getBeanDefinition() {
+            return beanDefinition;
+        }
+
+        public ExecutableMethod<?, ?> getMethod() {
+            return method;
+        }
+    }
+}
@@ -16,12 +16,16 @@
 package info.novatec.micronaut.camunda.external.client.feature;
 
 import io.micronaut.context.BeanContext;
+import io.micronaut.core.annotation.AnnotationMetadata;
 import io.micronaut.core.annotation.AnnotationValue;
 import io.micronaut.core.annotation.Order;
 import io.micronaut.inject.BeanDefinition;
+import io.micronaut.inject.qualifiers.Qualifiers;
+import io.micronaut.scheduling.TaskExecutors;
 import io.micronaut.runtime.event.annotation.EventListener;
 import io.micronaut.runtime.server.event.ServerStartupEvent;
 import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.camunda.bpm.client.ExternalTaskClient;
 import org.camunda.bpm.client.task.ExternalTaskHandler;
@@ -33,7 +37,11 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @author Martin Sawilla
@@ -47,19 +55,34 @@ public class ExternalWorkerSubscriptionCreator implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(ExternalWorkerSubscriptionCreator.class);
 
+    protected static final long DEFAULT_LOCK_DURATION = 20000;
+    protected static final int DEFAULT_MAX_OUTSTANDING_TASKS = 100;
+
     protected final BeanContext beanContext;
     protected final ExternalTaskClient externalTaskClient;
     protected Configuration configuration;
+    protected List<ExternalTaskHandlerDecorator> externalTaskHandlerDecorators;
 
     protected Collection<TopicSubscription> topicSubscriptions = Collections.synchronizedCollection(new ArrayList<>());
+    protected Collection<ConcurrentExternalTaskHandler> concurrentExternalTaskHandlers = Collections.synchronizedCollection(new ArrayList<>());
+    protected Collection<ExternalTaskClient> additionalExternalTaskClients = Collections.synchronizedCollection(new ArrayList<>());
 
     public ExternalWorkerSubscriptionCreator(BeanContext beanContext,
                                              ExternalTaskClient externalTaskClient,
                                              Configuration configuration) {
+        this(beanContext, externalTaskClient, configuration, Collections.emptyList());
+    }
+
+    @Inject
+    public ExternalWorkerSubscriptionCreator(BeanContext beanContext,
+                                             ExternalTaskClient externalTaskClient,
+                                             Configuration configuration,
+                                             List<ExternalTaskHandlerDecorator> externalTaskHandlerDecorators) {
         this.beanContext = beanContext;
         this.externalTaskClient = externalTaskClient;
 
         this.configuration = configuration;
+        this.externalTaskHandlerDecorators = externalTaskHandlerDecorators;
     }
 
     @PreDestroy
@@ -67,40 +90,207 @@ public class ExternalWorkerSubscriptionCreator implements AutoCloseable {
     public void close() {
         log.info("Closing {} topic subscriptions", topicSubscriptions.size());
         topicSubscriptions.forEach(TopicSubscription::close);
+        additionalExternalTaskClients.forEach(ExternalTaskClient::stop);
+        concurrentExternalTaskHandlers.forEach(ConcurrentExternalTaskHandler::close);
     }
 
     @Order(-90) //Start after process engine with REST-interface which has order -100
     @EventListener
     public void onEvent(ServerStartupEvent event) {
         beanContext.getBeanDefinitions(ExternalTaskHandler.class).forEach(this::registerExternalTaskHandler);
+        beanContext.getBeanDefinitions(AsyncExternalTaskHandler.class).forEach(this::registerAsyncExternalTaskHandler);
+        beanContext.getBeanDefinitions(ReactiveExternalTaskHandler.class).forEach(this::registerReactiveExternalTaskHandler);
+        beanContext.getBean(ExternalTaskSubscriptionMethodProcessor.class).getSubscriptionMethods().forEach(this::registerSubscriptionMethod);
     }
 
     protected void registerExternalTaskHandler(BeanDefinition<ExternalTaskHandler> beanDefinition) {
         ExternalTaskHandler externalTaskHandler = beanContext.getBean(beanDefinition);
-        AnnotationValue<ExternalTaskSubscription> annotationValue = beanDefinition.getAnnotation(ExternalTaskSubscription.class);
+        registerExternalTaskHandler(beanDefinition.getAnnotation(ExternalTaskSubscription.class), externalTaskHandler,
+                externalTaskHandler.getClass().getSimpleName(), null, beanDefinition.getName());
+    }
+
+    protected void registerExternalTaskHandler(AnnotationValue<ExternalTaskSubscription> annotationValue, ExternalTaskHandler externalTaskHandler,
+                                               String handlerName, String[] defaultVariables, String declaringName) {
+        registerSubscription(annotationValue, handlerName, defaultVariables, declaringName,
+                (topicName, lockDuration, concurrency, virtualThreads, autoExtendLock) -> {
+                    ExternalTaskHandler handler = decorateExternalTaskHandler(externalTaskHandler, topicName, lockDuration);
+                    if (autoExtendLock) {
+                        handler = new LockExtendingExternalTaskHandler(handler, beanContext.getBean(LockExtender.class), lockDuration);
+                    }
+                    if (concurrency > 0) {
+                        handler = createConcurrentExternalTaskHandler(handler, topicName, concurrency, virtualThreads);
+                    }
+                    return handler;
+                });
+    }
+
+    protected void registerAsyncExternalTaskHandler(BeanDefinition<AsyncExternalTaskHandler> beanDefinition) {
+        AsyncExternalTaskHandler asyncExternalTaskHandler = beanContext.getBean(beanDefinition);
+        registerAsyncExternalTaskHandler(beanDefinition.getAnnotation(ExternalTaskSubscription.class), asyncExternalTaskHandler,
+                asyncExternalTaskHandler.getClass().getSimpleName(), null, beanDefinition.getName());
+    }
 
+    protected void registerReactiveExternalTaskHandler(BeanDefinition<ReactiveExternalTaskHandler> beanDefinition) {
+        ReactiveExternalTaskHandler reactiveExternalTaskHandler = beanContext.getBean(beanDefinition);
+        registerAsyncExternalTaskHandler(beanDefinition.getAnnotation(ExternalTaskSubscription.class), AsyncExternalTaskHandlerAdapter.adapt(reactiveExternalTaskHandler),
+                reactiveExternalTaskHandler.getClass().getSimpleName(), null, beanDefinition.getName());
+    }
+
+    protected void registerSubscriptionMethod(ExternalTaskSubscriptionMethodProcessor.SubscriptionMethod subscriptionMethod) {
+        MethodExternalTaskHandler methodExternalTaskHandler = new MethodExternalTaskHandler(
+                beanContext.getBean(subscriptionMethod.getBeanDefinition()), subscriptionMethod.getMethod());
+        AnnotationValue<ExternalTaskSubscription> annotationValue = subscriptionMethod.getMethod().findAnnotation(ExternalTaskSubscriptionMethod.class)
+                .flatMap(it -> it.getAnnotation(AnnotationMetadata.VALUE_MEMBER, ExternalTaskSubscription.class))
+                .orElse(null);
+        String handlerName = methodExternalTaskHandler.getDescription();
+        if (methodExternalTaskHandler.isAsync()) {
+            registerAsyncExternalTaskHandler(annotationValue, methodExternalTaskHandler::executeAsync, handlerName,
+                    methodExternalTaskHandler.getVariableNames(), handlerName);
+        } else {
+            registerExternalTaskHandler(annotationValue, methodExternalTaskHandler, handlerName,
+                    methodExternalTaskHandler.getVariableNames(), handlerName);
+        }
+    }
+
+    protected void registerAsyncExternalTaskHandler(AnnotationValue<ExternalTaskSubscription> annotationValue, AsyncExternalTaskHandler asyncExternalTaskHandler,
+                                                    String handlerName, String[] defaultVariables, String declaringName) {
+        registerSubscription(annotationValue, handlerName, defaultVariables, declaringName,
+                (topicName, lockDuration, concurrency, virtualThreads, autoExtendLock) -> {
+                    int maxOutstandingTasks = concurrency > 0 ? concurrency : DEFAULT_MAX_OUTSTANDING_TASKS;
+                    log.info("Up to {} tasks of topic '{}' are executed asynchronously", maxOutstandingTasks, topicName);
+                    return new AsyncExternalTaskHandlerAdapter(decorateAsyncExternalTaskHandler(asyncExternalTaskHandler, topicName, lockDuration),
+                            topicName, maxOutstandingTasks,
+                            beanContext.getBean(ExecutorService.class, Qualifiers.byName(TaskExecutors.IO)),
+                            handler -> decorateExternalTaskHandler(handler, topicName, lockDuration),
+                            autoExtendLock ? beanContext.getBean(LockExtender.class) : null,
+                            lockDuration);
+                });
+    }
+
+    /**
+     * Subscribes to the topic of the annotation.
+     *
+     * @param annotationValue the subscription annotation, may be null
+     * @param handlerName the name of the handler for logging
+     * @param defaultVariables the variables to fetch unless configured otherwise, null to fetch all variables
+     * @param declaringName the name of the class or method declaring the handler
+     * @param externalTaskHandlerFactory creates the handler for each fetch loop
+     */
+    protected void registerSubscription(AnnotationValue<ExternalTaskSubscription> annotationValue, String handlerName, String[] defaultVariables,
+                                        String declaringName, ExternalTaskHandlerFactory externalTaskHandlerFactory) {
         if (annotationValue != null) {
             //noinspection OptionalGetWithoutIsPresent
             String topicName = annotationValue.stringValue("topicName").get();
 
-            TopicSubscriptionBuilder builder = createTopicSubscription(externalTaskHandler, externalTaskClient, topicName, annotationValue);
+            // annotation defaults are not returned, an absent value falls back to the lock duration of the client
+            OptionalLong annotatedLockDuration = annotationValue.longValue("lockDuration");
+            Long lockDuration = annotatedLockDuration.isPresent() ? annotatedLockDuration.getAsLong() : null;
+            int concurrency = annotationValue.intValue("concurrency").orElse(0);
+            boolean virtualThreads = annotationValue.booleanValue("virtualThreads").orElse(false);
+            boolean autoExtendLock = annotationValue.booleanValue("autoExtendLock").orElse(false);
+            String clientName = annotationValue.stringValue("client").filter(it -> !it.isEmpty()).orElse(null);
+            int fetchLoops = annotationValue.intValue("fetchLoops").orElse(1);
 
+            Configuration.Subscription subscription = null;
             Map<String, Configuration.Subscription> subscriptions = configuration.getSubscriptions();
             if (subscriptions != null && subscriptions.containsKey(topicName)) {
-                Configuration.Subscription subscription = subscriptions.get(topicName);
+                subscription = subscriptions.get(topicName);
                 if (subscription != null) {
-                    overrideTopicSubscriptionWithConfigurationProperties(subscription, builder, topicName);
+                    if (subscription.getLockDuration() != null) {
+                        lockDuration = subscription.getLockDuration();
+                    }
+                    if (subscription.getConcurrency() != null) {
+                        concurrency = subscription.getConcurrency();
+                    }
+                    if (subscription.getVirtualThreads() != null) {
+                        virtualThreads = subscription.getVirtualThreads();
+                    }
+                    if (subscription.getAutoExtendLock() != null) {
+                        autoExtendLock = subscription.getAutoExtendLock();
+                    }
+                    if (subscription.getClient() != null) {
+                        clientName = subscription.getClient();
+                    }
+                    if (subscription.getFetchLoops() != null) {
+                        fetchLoops = subscription.getFetchLoops();
+                    }
                 }
             }
 
-            topicSubscriptions.add(builder.open());
-            log.info("External task client '{}' subscribed to topic '{}'", externalTaskHandler.getClass().getSimpleName(), topicName);
+            if (lockDuration == null) {
+                lockDuration = getClientLockDuration(clientName);
+            }
+
+            ExternalTaskClient client = getExternalTaskClient(clientName);
+            for (int fetchLoop = 0; fetchLoop < Math.max(1, fetchLoops); fetchLoop++) {
+                // every additional fetch loop requires its own client because a client runs a single fetch loop
+                ExternalTaskClient fetchLoopClient = fetchLoop == 0 ? client : createAdditionalExternalTaskClient(clientName);
+
+                ExternalTaskHandler handler = externalTaskHandlerFactory.create(topicName, lockDuration, concurrency, virtualThreads, autoExtendLock);
+                TopicSubscriptionBuilder builder = createTopicSubscription(handler, fetchLoopClient, topicName, annotationValue);
+                if (defaultVariables != null && !hasVariables(annotationValue)) {
+                    builder.variables(defaultVariables);
+                }
+                if (subscription != null) {
+                    overrideTopicSubscriptionWithConfigurationProperties(subscription, builder, topicName);
+                }
+
+                topicSubscriptions.add(builder.open());
+            }
+            log.info("External task client '{}' subscribed to topic '{}'{}{}", handlerName, topicName,
+                    clientName != null ? " with client '" + clientName + "'" : "",
+                    fetchLoops > 1 ? " using " + fetchLoops + " fetch loops" : "");
 
         } else {
-            log.warn("Skipping subscription. Could not find annotation ExternalTaskSubscription on class {}", beanDefinition.getName());
+            log.warn("Skipping subscription. Could not find annotation ExternalTaskSubscription on class {}", declaringName);
         }
     }
 
+    protected boolean hasVariables(AnnotationValue<ExternalTaskSubscription> annotationValue) {
+        return annotationValue.get("variables", String[].class).filter(it -> it.length > 0 && !it[0].equals("")).isPresent();
+    }
+
+    /**
+     * Returns all topic subscriptions which have been opened. Topics with several fetch loops have one subscription
+     * per fetch loop.
+     *
+     * @return the topic subscriptions
+     */
+    public Collection<TopicSubscription> getTopicSubscriptions() {
+        synchronized (topicSubscriptions) {
+            return new ArrayList<>(topicSubscriptions);
+        }
+    }
+
+    /**
+     * Resolves the lock duration of a client in the same order as {@link ExternalTaskClientCreator}: the named client
+     * configuration, the client configuration and finally the default of the external task client.
+     *
+     * @param clientName the name of the client or null for the default client
+     * @return the lock duration in milliseconds
+     */
+    protected long getClientLockDuration(String clientName) {
+        Optional<Long> lockDuration = Optional.empty();
+        if (clientName != null) {
+            lockDuration = beanContext.findBean(ClientConfiguration.class, Qualifiers.byName(clientName)).flatMap(ClientConfiguration::getLockDuration);
+        }
+        return lockDuration.orElseGet(() -> configuration.getLockDuration().orElse(DEFAULT_LOCK_DURATION));
+    }
+
+    protected ExternalTaskClient getExternalTaskClient(String clientName) {
+        if (clientName == null) {
+            return externalTaskClient;
+        }
+        return beanContext.findBean(ExternalTaskClient.class, Qualifiers.byName(clientName))
+                .orElseThrow(() -> new IllegalArgumentException("No external task client configured with name '" + clientName + "'"));
+    }
+
+    protected ExternalTaskClient createAdditionalExternalTaskClient(String clientName) {
+        ExternalTaskClient client = beanContext.getBean(ExternalTaskClientCreator.class).create(clientName);
+        additionalExternalTaskClients.add(client);
+        return client;
+    }
+
     protected TopicSubscriptionBuilder createTopicSubscription(ExternalTaskHandler externalTaskHandler, ExternalTaskClient client, String topicName, AnnotationValue<ExternalTaskSubscription> annotationValue) {
 
         TopicSubscriptionBuilder builder = client.subscribe(topicName);
@@ -154,6 +344,29 @@ public class ExternalWorkerSubscriptionCreator implements AutoCloseable {
         return builder;
     }
 
+    protected ExternalTaskHandler decorateExternalTaskHandler(ExternalTaskHandler externalTaskHandler, String topicName, long lockDuration) {
+        ExternalTaskHandler handler = externalTaskHandler;
+        for (ExternalTaskHandlerDecorator externalTaskHandlerDecorator : externalTaskHandlerDecorators) {
+            handler = externalTaskHandlerDecorator.decorate(handler, topicName, lockDuration);
+        }
+        return handler;
+    }
+
+    protected AsyncExternalTaskHandler decorateAsyncExternalTaskHandler(AsyncExternalTaskHandler asyncExternalTaskHandler, String topicName, long lockDuration) {
+        AsyncExternalTaskHandler handler = asyncExternalTaskHandler;
+        for (ExternalTaskHandlerDecorator externalTaskHandlerDecorator : externalTaskHandlerDecorators) {
+            handler = externalTaskHandlerDecorator.decorateAsync(handler, topicName, lockDuration);
+        }
+        return handler;
+    }
+
+    protected ConcurrentExternalTaskHandler createConcurrentExternalTaskHandler(ExternalTaskHandler externalTaskHandler, String topicName, int concurrency, boolean virtualThreads) {
+        ConcurrentExternalTaskHandler concurrentExternalTaskHandler = new ConcurrentExternalTaskHandler(externalTaskHandler, topicName, concurrency, virtualThreads);
+        concurrentExternalTaskHandlers.add(concurrentExternalTaskHandler);
+        log.info("Tasks of topic '{}' are executed by up to {} {} threads", topicName, concurrency, virtualThreads ? "virtual" : "platform");
+        return concurrentExternalTaskHandler;
+    }
+
     protected void overrideTopicSubscriptionWithConfigurationProperties(Configuration.Subscription subscription, TopicSubscriptionBuilder builder, String topicName) {
         log.info("External configuration for topic {} found.", topicName);
 
@@ -205,4 +418,14 @@ public class ExternalWorkerSubscriptionCreator implements AutoCloseable {
             builder.includeExtensionProperties(subscription.getIncludeExtensionProperties());
         }
     }
+
+    /**
+     * Creates the handler of a topic subscription from the resolved subscription properties.
+     */
+    @FunctionalInterface
+    protected interface ExternalTaskHandlerFactory {
+
+        ExternalTaskHandler create(String topicName, long lockDuration, int concurrency, boolean virtualThreads, boolean autoExtendLock);
+
+    }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.topic.impl.dto.FetchAndLockResponseDto;
+import org.camunda.bpm.client.topic.impl.dto.TopicRequestDto;
+
+import java.util.List;
+
+/**
+ * Is notified by {@link MicronautTopicSubscriptionManager} after each fetch and lock request. Listeners are invoked on
+ * the acquisition thread and must therefore return quickly.
+ */
+@FunctionalInterface
+public interface FetchAndLockListener {
+
+    /**
+     * @param topics the topics which were part of the request
+     * @param response the locked tasks or the error of the request
+     * @param durationNanos the duration of the request in nanoseconds
+     */
+    void onFetchAndLock(List<TopicRequestDto> topics, FetchAndLockResponseDto response, long durationNanos);
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.TaskScheduler;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskService;
+import org.camunda.bpm.client.task.impl.ExternalTaskImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Extends the locks of in-flight tasks before they expire. A lock is extended by the lock duration of its subscription
+ * as soon as half of the lock duration has passed.
+ *
+ * Instead of a timer per task, extensions are collected in buckets of the configured granularity and a single job on
+ * the shared scheduler dispatches all due extensions to the IO executor once per granularity. A failed extension is
+ * retried with the next bucket as long as the current lock has not expired.
+ */
+@Singleton
+public class LockExtender implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LockExtender.class);
+
+    protected static final long DEFAULT_GRANULARITY = 1000;
+
+    protected final TaskScheduler taskScheduler;
+    protected final ExecutorService executorService;
+    protected final long granularity;
+    protected final NavigableMap<Long, List<Lease>> buckets = new TreeMap<>();
+
+    protected ScheduledFuture<?> scheduledFuture;
+
+    public LockExtender(@Named(TaskExecutors.SCHEDULED) TaskScheduler taskScheduler,
+                        @Named(TaskExecutors.IO) ExecutorService executorService,
+                        Configuration configuration) {
+        this.taskScheduler = taskScheduler;
+        this.executorService = executorService;
+        this.granularity = configuration.getLockExtensionGranularity().orElse(DEFAULT_GRANULARITY);
+    }
+
+    /**
+     * Starts extending the lock of the given task until the returned lease is cancelled.
+     *
+     * @param externalTask the locked task
+     * @param externalTaskService the service used to extend the lock
+     * @param lockDuration the duration in milliseconds each extension locks the task for
+     * @return the lease which must be cancelled as soon as the task has been handled
+     */
+    public Lease register(ExternalTask externalTask, ExternalTaskService externalTaskService, long lockDuration) {
+        start();
+        Lease lease = new Lease(externalTask, externalTaskService, lockDuration);
+        Date lockExpirationTime = externalTask.getLockExpirationTime();
+        lease.lockExpiresAt = lockExpirationTime != null ? lockExpirationTime.getTime() : System.currentTimeMillis() + lockDuration;
+        schedule(lease, lease.lockExpiresAt - lockDuration / 2);
+        return lease;
+    }
+
+    @PreDestroy
+    @Override
+    public synchronized void close() {
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+            scheduledFuture = null;
+        }
+        synchronized (buckets) {
+            buckets.clear();
+        }
+    }
+
+    protected synchronized void start() {
+        if (scheduledFuture == null) {
+            Duration period = Duration.ofMillis(granularity);
+            scheduledFuture = taskScheduler.scheduleAtFixedRate(period, period, this::extendDueLocks);
+        }
+    }
+
+    protected void schedule(Lease lease, long due) {
+        synchronized (buckets) {
+            buckets.computeIfAbsent(due / granularity, it -> new ArrayList<>()).add(lease);
+        }
+    }
+
+    protected void extendDueLocks() {
+        long currentBucket = System.currentTimeMillis() / granularity;
+        List<List<Lease>> dueBuckets = new ArrayList<>();
+        synchronized (buckets) {
+            while (!buckets.isEmpty() && buckets.firstKey() <= currentBucket) {
+                dueBuckets.add(buckets.pollFirstEntry().getValue());
+            }
+        }
+        for (List<Lease> dueBucket : dueBuckets) {
+            for (Lease lease : dueBucket) {
+                try {
+                    executorService.execute(() -> extendLock(lease));
+                } catch (RejectedExecutionException e) {
+                    log.debug("Not extending lock of external task {}, the executor has been shut down", lease.externalTask.getId());
+                }
+            }
+        }
+    }
+
+    protected void extendLock(Lease lease) {
+        if (lease.cancelled) {
+            return;
+        }
+        ExternalTask externalTask = lease.externalTask;
+        try {
+            long extendedAt = System.currentTimeMillis();
+            lease.externalTaskService.extendLock(externalTask, lease.lockDuration);
+            lease.lockExpiresAt = extendedAt + lease.lockDuration;
+            if (externalTask instanceof ExternalTaskImpl) {
+                ((ExternalTaskImpl) externalTask).setLockExpirationTime(new Date(lease.lockExpiresAt));
+            }
+            log.debug("Extended lock of external task {} by {} ms", externalTask.getId(), lease.lockDuration);
+            schedule(lease, extendedAt + lease.lockDuration / 2);
+        } catch (RuntimeException e) {
+            if (lease.cancelled) {
+                return;
+            }
+            long retryAt = System.currentTimeMillis() + granularity;
+            if (retryAt < lease.lockExpiresAt) {
+                log.warn("Could not extend lock of external task {} of topic '{}', retrying: {}", externalTask.getId(), externalTask.getTopicName(), e.getMessage());
+                schedule(lease, retryAt);
+            } else {
+                log.error("Could not extend lock of external task {} of topic '{}' before it expires", externalTask.getId(), externalTask.getTopicName(), e);
+            }
+        }
+    }
+
+    /**
+     * Lock extension of a single task. Cancel it as soon as the task has been handled.
+     */
+    public static class Lease {
+
+        protected final ExternalTask externalTask;
+        protected final ExternalTaskService externalTaskService;
+        protected final long lockDuration;
+
+        protected volatile long lockExpiresAt;
+        protected volatile boolean cancelled;
+
+        protected Lease(ExternalTask externalTask, ExternalTaskService externalTaskService, long lockDuration) {
+            this.externalTask = externalTask;
+            this.externalTaskService = externalTaskService;
+            this.lockDuration = lockDuration;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
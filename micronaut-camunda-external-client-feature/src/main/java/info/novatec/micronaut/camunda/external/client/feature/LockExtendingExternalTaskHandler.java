@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+import org.camunda.bpm.client.task.ExternalTaskService;
+
+/**
+ * Keeps the lock of a task alive with the {@link LockExtender} while the wrapped handler is executed.
+ */
+public class LockExtendingExternalTaskHandler implements ExternalTaskHandler {
+
+    protected final ExternalTaskHandler externalTaskHandler;
+    protected final LockExtender lockExtender;
+    protected final long lockDuration;
+
+    public LockExtendingExternalTaskHandler(ExternalTaskHandler externalTaskHandler, LockExtender lockExtender, long lockDuration) {
+        this.externalTaskHandler = externalTaskHandler;
+        this.lockExtender = lockExtender;
+        this.lockDuration = lockDuration;
+    }
+
+    @Override
+    public void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        LockExtender.Lease lease = lockExtender.register(externalTask, externalTaskService, lockDuration);
+        try {
+            externalTaskHandler.execute(externalTask, externalTaskService);
+        } finally {
+            lease.cancel();
+        }
+    }
+
+    public ExternalTaskHandler getExternalTaskHandler() {
+        return externalTaskHandler;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import io.micronaut.core.convert.ConversionService;
+import io.micronaut.core.type.Argument;
+import io.micronaut.inject.ExecutableMethod;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+import org.camunda.bpm.client.task.ExternalTaskService;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Invokes a method annotated with {@link ExternalTaskSubscriptionMethod} through its {@link ExecutableMethod}, i.e. without
+ * reflection. Parameters are resolved as follows:
+ * <ul>
+ *     <li>{@link Variable} annotated parameters receive the variable of the task, converted to the parameter type</li>
+ *     <li>{@link ExternalTask} parameters receive the task</li>
+ *     <li>{@link ExternalTaskService} parameters receive the service, the method is then responsible to report the outcome</li>
+ * </ul>
+ * Unless the method reports the outcome itself, it is derived from the return value: an {@link ExternalTaskOutcome} is
+ * reported, a map completes the task with these variables and any other value completes the task without variables.
+ * Methods returning a {@link CompletionStage} or {@link Publisher} of an {@link ExternalTaskOutcome} are executed
+ * asynchronously, see {@link #executeAsync(ExternalTask)}.
+ */
+public class MethodExternalTaskHandler implements ExternalTaskHandler {
+
+    protected final Object bean;
+    protected final ExecutableMethod<Object, Object> method;
+    protected final boolean reportsOutcome;
+    protected final boolean async;
+    protected final boolean reactive;
+
+    @SuppressWarnings("unchecked")
+    public MethodExternalTaskHandler(Object bean, ExecutableMethod<?, ?> method) {
+        this.bean = bean;
+        this.method = (ExecutableMethod<Object, Object>) method;
+        boolean reportsOutcome = false;
+        for (Argument<?> argument : method.getArguments()) {
+            if (argument.getType() == ExternalTaskService.class) {
+                reportsOutcome = true;
+            } else if (argument.getType() != ExternalTask.class && !argument.getAnnotationMetadata().hasAnnotation(Variable.class)) {
+                throw new IllegalArgumentException("Parameter '" + argument.getName() + "' of " + getDescription()
+                        + " must be annotated with @Variable or be of type ExternalTask or ExternalTaskService");
+            }
+        }
+        this.reportsOutcome = reportsOutcome;
+        this.reactive = Publisher.class.isAssignableFrom(method.getReturnType().getType());
+        this.async = reactive || CompletionStage.class.isAssignableFrom(method.getReturnType().getType());
+        if (async && reportsOutcome) {
+            throw new IllegalArgumentException("Asynchronous " + getDescription() + " must not have an ExternalTaskService parameter");
+        }
+    }
+
+    @Override
+    public void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        Object result = invoke(externalTask, externalTaskService);
+        if (reportsOutcome) {
+            return;
+        }
+        toOutcome(result).report(externalTask, externalTaskService);
+    }
+
+    /**
+     * Executes a method returning a {@link CompletionStage} or {@link Publisher}.
+     *
+     * @param externalTask the task
+     * @return the stage completed with the outcome
+     */
+    @SuppressWarnings("unchecked")
+    public CompletionStage<ExternalTaskOutcome> executeAsync(ExternalTask externalTask) {
+        Object result = invoke(externalTask, null);
+        if (reactive) {
+            return AsyncExternalTaskHandlerAdapter.toCompletionStage((Publisher<ExternalTaskOutcome>) result);
+        }
+        return (CompletionStage<ExternalTaskOutcome>) result;
+    }
+
+    /**
+     * Returns the variables bound to parameters or null if the method accesses the task and might read any variable.
+     *
+     * @return the names of the variables to fetch
+     */
+    public String[] getVariableNames() {
+        List<String> variableNames = new ArrayList<>();
+        for (Argument<?> argument : method.getArguments()) {
+            if (argument.getType() == ExternalTask.class) {
+                return null;
+            }
+            argument.getAnnotationMetadata().stringValue(Variable.class).ifPresent(variableNames::add);
+        }
+        return variableNames.toArray(new String[0]);
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public String getDescription() {
+        return "method " + method.getDeclaringType().getSimpleName() + "." + method.getMethodName();
+    }
+
+    protected Object invoke(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        Argument<?>[] arguments = method.getArguments();
+        Object[] values = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            Argument<?> argument = arguments[i];
+            if (argument.getType() == ExternalTask.class) {
+                values[i] = externalTask;
+            } else if (argument.getType() == ExternalTaskService.class) {
+                values[i] = externalTaskService;
+            } else {
+                //noinspection OptionalGetWithoutIsPresent
+                values[i] = getVariable(externalTask, argument, argument.getAnnotationMetadata().stringValue(Variable.class).get());
+            }
+        }
+        return method.invoke(bean, values);
+    }
+
+    protected Object getVariable(ExternalTask externalTask, Argument<?> argument, String variableName) {
+        Object value = externalTask.getVariable(variableName);
+        if (value == null) {
+            if (argument.isPrimitive()) {
+                throw new IllegalArgumentException("Variable '" + variableName + "' of " + getDescription() + " is not set");
+            }
+            return null;
+        }
+        if (argument.getWrapperType().isInstance(value)) {
+            return value;
+        }
+        return ConversionService.SHARED.convert(value, argument).orElseThrow(() -> new IllegalArgumentException(
+                "Variable '" + variableName + "' of type " + value.getClass().getName() + " cannot be converted to " + argument.getTypeName()));
+    }
+
+    @SuppressWarnings("unchecked")
+    protected ExternalTaskOutcome toOutcome(Object result) {
+        if (result instanceof ExternalTaskOutcome) {
+            return (ExternalTaskOutcome) result;
+        }
+        if (result instanceof Map) {
+            return ExternalTaskOutcome.complete((Map<String, Object>) result);
+        }
+        return ExternalTaskOutcome.complete();
+    }
+}
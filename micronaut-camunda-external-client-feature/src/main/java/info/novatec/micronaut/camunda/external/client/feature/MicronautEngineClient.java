@@ -0,0 +1,216 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.impl.EngineClient;
+import org.camunda.bpm.client.impl.RequestExecutor;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.topic.impl.dto.TopicRequestDto;
+import org.camunda.bpm.client.variable.impl.TypedValueField;
+import org.camunda.bpm.client.variable.impl.TypedValues;
+import org.camunda.bpm.client.variable.impl.VariableValue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Engine client which allows to limit the amount of tasks requested by fetch and lock. The configured max tasks remain
+ * the upper bound.
+ * <p>
+ * If a {@link CompletionJournalFlusher} is set, the outcomes of tasks are appended to its journal instead of being
+ * sent to the engine directly. The entries keep the lock duration their task was fetched with, so that the flusher
+ * extends the lock of a pending outcome by the lock duration of its subscription.
+ */
+public class MicronautEngineClient extends EngineClient {
+
+    protected final int configuredMaxTasks;
+    protected volatile int fetchLimit = Integer.MAX_VALUE;
+    protected CompletionJournalFlusher completionJournalFlusher;
+    // the locks of the fetched tasks by task id, only tracked while a completion journal is used
+    protected final Map<String, TaskLock> taskLocks = new ConcurrentHashMap<>();
+
+    public MicronautEngineClient(String workerId, int maxTasks, Long asyncResponseTimeout, String baseUrl, RequestExecutor engineInteraction, boolean usePriority) {
+        super(workerId, maxTasks, asyncResponseTimeout, baseUrl, engineInteraction, usePriority);
+        this.configuredMaxTasks = maxTasks;
+    }
+
+    @Override
+    public List<ExternalTask> fetchAndLock(List<TopicRequestDto> topics) {
+        // only invoked by the single acquisition thread of the topic subscription manager
+        maxTasks = Math.max(1, Math.min(configuredMaxTasks, fetchLimit));
+        List<ExternalTask> externalTasks = super.fetchAndLock(topics);
+        if (completionJournalFlusher != null) {
+            trackTaskLocks(topics, externalTasks);
+        }
+        return externalTasks;
+    }
+
+    @Override
+    public void extendLock(String taskId, long newDuration) {
+        super.extendLock(taskId, newDuration);
+        TaskLock taskLock = taskLocks.get(taskId);
+        if (taskLock != null) {
+            taskLock.expirationTime = System.currentTimeMillis() + newDuration;
+        }
+    }
+
+    @Override
+    public void unlock(String taskId) {
+        super.unlock(taskId);
+        taskLocks.remove(taskId);
+    }
+
+    /**
+     * Limits the amount of tasks requested by subsequent fetch and lock requests.
+     *
+     * @param fetchLimit the maximum amount of tasks to fetch, capped by the configured max tasks
+     */
+    public void setFetchLimit(int fetchLimit) {
+        this.fetchLimit = fetchLimit;
+    }
+
+    public int getConfiguredMaxTasks() {
+        return configuredMaxTasks;
+    }
+
+    public void setCompletionJournalFlusher(CompletionJournalFlusher completionJournalFlusher) {
+        this.completionJournalFlusher = completionJournalFlusher;
+    }
+
+    @Override
+    public void setTypedValues(TypedValues typedValues) {
+        super.setTypedValues(new PreSerializedTypedValues(typedValues));
+    }
+
+    @Override
+    public void complete(String taskId, Map<String, Object> variables, Map<String, Object> localVariables) {
+        if (completionJournalFlusher == null) {
+            super.complete(taskId, variables, localVariables);
+        } else {
+            journal(CompletionJournalEntry.complete(taskId, workerId, typedValues.serializeVariables(variables), typedValues.serializeVariables(localVariables)));
+        }
+    }
+
+    @Override
+    public void failure(String taskId, String errorMessage, String errorDetails, int retries, long retryTimeout, Map<String, Object> variables, Map<String, Object> localVariables) {
+        if (completionJournalFlusher == null) {
+            super.failure(taskId, errorMessage, errorDetails, retries, retryTimeout, variables, localVariables);
+        } else {
+            journal(CompletionJournalEntry.failure(taskId, workerId, errorMessage, errorDetails, retries, retryTimeout, typedValues.serializeVariables(variables), typedValues.serializeVariables(localVariables)));
+        }
+    }
+
+    @Override
+    public void bpmnError(String taskId, String errorCode, String errorMessage, Map<String, Object> variables) {
+        if (completionJournalFlusher == null) {
+            super.bpmnError(taskId, errorCode, errorMessage, variables);
+        } else {
+            journal(CompletionJournalEntry.bpmnError(taskId, workerId, errorCode, errorMessage, typedValues.serializeVariables(variables)));
+        }
+    }
+
+    /**
+     * Sends the outcome of a journal entry to the engine.
+     *
+     * @param entry the journal entry
+     */
+    public void send(CompletionJournalEntry entry) {
+        switch (entry.getType()) {
+            case COMPLETE:
+                super.complete(entry.getTaskId(), preSerialized(entry.getVariables()), preSerialized(entry.getLocalVariables()));
+                break;
+            case FAILURE:
+                super.failure(entry.getTaskId(), entry.getErrorMessage(), entry.getErrorDetails(), entry.getRetries(), entry.getRetryTimeout(),
+                        preSerialized(entry.getVariables()), preSerialized(entry.getLocalVariables()));
+                break;
+            case BPMN_ERROR:
+                super.bpmnError(entry.getTaskId(), entry.getErrorCode(), entry.getErrorMessage(), preSerialized(entry.getVariables()));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported journal entry type " + entry.getType());
+        }
+    }
+
+    protected void journal(CompletionJournalEntry entry) {
+        TaskLock taskLock = taskLocks.remove(entry.getTaskId());
+        if (taskLock != null) {
+            entry.setLockDuration(taskLock.lockDuration);
+        }
+        if (!completionJournalFlusher.submit(this, entry)) {
+            send(entry);
+        }
+    }
+
+    protected void trackTaskLocks(List<TopicRequestDto> topics, List<ExternalTask> externalTasks) {
+        long now = System.currentTimeMillis();
+        // forget the tasks whose outcome has not been reported before their lock expired
+        taskLocks.values().removeIf(taskLock -> taskLock.expirationTime < now);
+        Map<String, Long> lockDurations = new HashMap<>();
+        topics.forEach(topic -> lockDurations.put(topic.getTopicName(), topic.getLockDuration()));
+        for (ExternalTask externalTask : externalTasks) {
+            Long lockDuration = lockDurations.get(externalTask.getTopicName());
+            if (lockDuration != null) {
+                taskLocks.put(externalTask.getId(), new TaskLock(lockDuration, now + lockDuration));
+            }
+        }
+    }
+
+    protected static Map<String, Object> preSerialized(Map<String, TypedValueField> variables) {
+        return variables == null ? null : new HashMap<>(variables);
+    }
+
+    /**
+     * Passes variables through which are already serialized, i.e. those of journal entries.
+     */
+    protected static class PreSerializedTypedValues extends TypedValues {
+
+        protected final TypedValues typedValues;
+
+        protected PreSerializedTypedValues(TypedValues typedValues) {
+            super(null);
+            this.typedValues = typedValues;
+        }
+
+        @Override
+        public Map<String, TypedValueField> serializeVariables(Map<String, Object> variables) {
+            if (variables != null && !variables.isEmpty() && variables.values().stream().allMatch(TypedValueField.class::isInstance)) {
+                Map<String, TypedValueField> result = new HashMap<>();
+                variables.forEach((name, value) -> result.put(name, (TypedValueField) value));
+                return result;
+            }
+            return typedValues.serializeVariables(variables);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes") // overrides the raw signature of TypedValues
+        public Map<String, VariableValue> wrapVariables(ExternalTask externalTask, Map<String, TypedValueField> variables) {
+            return typedValues.wrapVariables(externalTask, variables);
+        }
+    }
+
+    protected static class TaskLock {
+
+        protected final long lockDuration;
+        protected volatile long expirationTime;
+
+        protected TaskLock(long lockDuration, long expirationTime) {
+            this.lockDuration = lockDuration;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
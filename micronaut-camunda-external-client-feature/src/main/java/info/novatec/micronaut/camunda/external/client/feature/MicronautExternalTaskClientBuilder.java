@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.impl.ExternalTaskClientBuilderImpl;
+import org.camunda.bpm.client.impl.RequestExecutor;
+import org.camunda.bpm.client.interceptor.impl.RequestInterceptorHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the external task client with {@link MicronautEngineClient} and {@link MicronautTopicSubscriptionManager}
+ * which are required to size fetch and lock requests according to the free slots of concurrent handlers. Optionally,
+ * the transport is replaced by the {@link RequestExecutor} of a {@link RequestExecutorFactory} and the outcomes of
+ * tasks are reported through a {@link CompletionJournalFlusher}.
+ */
+public class MicronautExternalTaskClientBuilder extends ExternalTaskClientBuilderImpl {
+
+    protected final List<FetchAndLockListener> fetchAndLockListeners = new ArrayList<>();
+    protected RequestExecutorFactory requestExecutorFactory;
+    protected boolean adaptiveFetching;
+    protected int minTasks = 1;
+    protected long maxBackoffTime = 60000;
+    protected CompletionJournalFlusher completionJournalFlusher;
+
+    public MicronautExternalTaskClientBuilder addFetchAndLockListener(FetchAndLockListener fetchAndLockListener) {
+        fetchAndLockListeners.add(fetchAndLockListener);
+        return this;
+    }
+
+    public MicronautExternalTaskClientBuilder requestExecutorFactory(RequestExecutorFactory requestExecutorFactory) {
+        this.requestExecutorFactory = requestExecutorFactory;
+        return this;
+    }
+
+    /**
+     * Replaces the backoff strategy with an {@link AdaptiveFetchController} which also adjusts the amount of fetched
+     * tasks between min tasks and max tasks.
+     *
+     * @param minTasks the minimum amount of tasks to fetch
+     * @param maxBackoffTime the maximum time in milliseconds to wait between fetch and lock requests
+     * @return the builder
+     */
+    public MicronautExternalTaskClientBuilder adaptiveFetching(int minTasks, long maxBackoffTime) {
+        this.adaptiveFetching = true;
+        this.minTasks = minTasks;
+        this.maxBackoffTime = maxBackoffTime;
+        return this;
+    }
+
+    /**
+     * Appends the outcomes of tasks to the journal of the flusher instead of sending them to the engine directly.
+     *
+     * @param completionJournalFlusher the flusher, may be shared by clients connected to the same engine
+     * @return the builder
+     */
+    public MicronautExternalTaskClientBuilder completionJournal(CompletionJournalFlusher completionJournalFlusher) {
+        this.completionJournalFlusher = completionJournalFlusher;
+        return this;
+    }
+
+    @Override
+    protected void initEngineClient() {
+        RequestExecutor requestExecutor;
+        if (requestExecutorFactory != null) {
+            requestExecutor = requestExecutorFactory.create(interceptors, objectMapper, asyncResponseTimeout);
+        } else {
+            requestExecutor = new RequestExecutor(new RequestInterceptorHandler(interceptors), objectMapper) { };
+        }
+        engineClient = new MicronautEngineClient(workerId, maxTasks, asyncResponseTimeout, baseUrl, requestExecutor, usePriority);
+    }
+
+    @Override
+    protected void initTopicSubscriptionManager() {
+        if (completionJournalFlusher != null) {
+            // registered once the typed values are set because recovered outcomes are sent immediately
+            completionJournalFlusher.register((MicronautEngineClient) engineClient, lockDuration);
+        }
+
+        MicronautTopicSubscriptionManager micronautTopicSubscriptionManager = new MicronautTopicSubscriptionManager((MicronautEngineClient) engineClient, typedValues, lockDuration);
+        fetchAndLockListeners.forEach(micronautTopicSubscriptionManager::addFetchAndLockListener);
+
+        topicSubscriptionManager = micronautTopicSubscriptionManager;
+        if (adaptiveFetching) {
+            topicSubscriptionManager.setBackoffStrategy(new AdaptiveFetchController(Math.min(minTasks, maxTasks), maxTasks, maxBackoffTime));
+        } else {
+            topicSubscriptionManager.setBackoffStrategy(getBackoffStrategy());
+        }
+
+        if (isBackoffStrategyDisabled) {
+            topicSubscriptionManager.disableBackoffStrategy();
+        }
+
+        if (isAutoFetchingEnabled()) {
+            topicSubscriptionManager.start();
+        }
+    }
+}
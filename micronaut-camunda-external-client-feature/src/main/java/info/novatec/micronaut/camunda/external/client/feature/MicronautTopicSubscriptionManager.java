@@ -0,0 +1,258 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.backoff.BackoffStrategy;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+import org.camunda.bpm.client.task.ExternalTaskService;
+import org.camunda.bpm.client.topic.TopicSubscription;
+import org.camunda.bpm.client.topic.impl.TopicSubscriptionManager;
+import org.camunda.bpm.client.topic.impl.dto.FetchAndLockResponseDto;
+import org.camunda.bpm.client.topic.impl.dto.TopicRequestDto;
+import org.camunda.bpm.client.variable.impl.TypedValues;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Topic subscription manager which is aware of topics handled by a {@link CapacityAwareExternalTaskHandler}, e.g. a
+ * {@link ConcurrentExternalTaskHandler}:
+ * <ul>
+ *     <li>topics without free slots are not part of the fetch and lock request</li>
+ *     <li>a fetch and lock request never requests more tasks than the topics have free slots</li>
+ *     <li>if all topics are saturated, the acquisition waits until a slot becomes available</li>
+ *     <li>if the backoff strategy is an {@link AdaptiveFetchController}, its fetch limit is applied as well and it is
+ *     notified whenever the outcome of a task is reported</li>
+ * </ul>
+ */
+public class MicronautTopicSubscriptionManager extends TopicSubscriptionManager {
+
+    protected static final long SATURATION_TIMEOUT_MILLIS = 1000;
+
+    protected final MicronautEngineClient micronautEngineClient;
+    protected final List<FetchAndLockListener> fetchAndLockListeners = new CopyOnWriteArrayList<>();
+
+    // only accessed by the acquisition thread
+    protected long fetchedAt;
+
+    public MicronautTopicSubscriptionManager(MicronautEngineClient engineClient, TypedValues typedValues, long clientLockDuration) {
+        super(engineClient, typedValues, clientLockDuration);
+        this.micronautEngineClient = engineClient;
+    }
+
+    @Override
+    protected void acquire() {
+        if (awaitFreeSlot()) {
+            super.acquire();
+        }
+    }
+
+    @Override
+    protected void prepareAcquisition(TopicSubscription subscription) {
+        if (getFreeSlots(subscription.getExternalTaskHandler()) > 0) {
+            super.prepareAcquisition(subscription);
+        }
+    }
+
+    @Override
+    protected FetchAndLockResponseDto fetchAndLock(List<TopicRequestDto> subscriptions) {
+        int fetchLimit = Integer.MAX_VALUE;
+        for (ExternalTaskHandler externalTaskHandler : externalTaskHandlers.values()) {
+            // the engine does not distribute max tasks per topic, so the most saturated topic limits the request
+            fetchLimit = Math.min(fetchLimit, getFreeSlots(externalTaskHandler));
+        }
+        AdaptiveFetchController adaptiveFetchController = getAdaptiveFetchController();
+        if (adaptiveFetchController != null) {
+            fetchLimit = Math.min(fetchLimit, adaptiveFetchController.getFetchLimit());
+        }
+        micronautEngineClient.setFetchLimit(fetchLimit);
+
+        long start = System.nanoTime();
+        FetchAndLockResponseDto response = super.fetchAndLock(subscriptions);
+        long durationNanos = System.nanoTime() - start;
+        fetchedAt = System.currentTimeMillis();
+        if (adaptiveFetchController != null) {
+            adaptiveFetchController.onFetchAndLock(fetchedAt);
+        }
+        for (FetchAndLockListener fetchAndLockListener : fetchAndLockListeners) {
+            fetchAndLockListener.onFetchAndLock(subscriptions, response, durationNanos);
+        }
+        return response;
+    }
+
+    @Override
+    protected void handleExternalTask(ExternalTask externalTask, ExternalTaskHandler taskHandler) {
+        AdaptiveFetchController adaptiveFetchController = getAdaptiveFetchController();
+        Date lockExpirationTime = externalTask.getLockExpirationTime();
+        if (adaptiveFetchController == null || lockExpirationTime == null) {
+            super.handleExternalTask(externalTask, taskHandler);
+            return;
+        }
+        // capture the lock the task has been fetched with, the lock extender may move the expiration time later on
+        long lockedAt = fetchedAt;
+        long lockExpiration = lockExpirationTime.getTime();
+        super.handleExternalTask(externalTask, (task, externalTaskService) -> taskHandler.execute(task,
+                new CompletionReportingExternalTaskService(externalTaskService,
+                        () -> adaptiveFetchController.onTaskCompleted(lockedAt, lockExpiration, System.currentTimeMillis()))));
+    }
+
+    public BackoffStrategy getBackoffStrategy() {
+        return backoffStrategy;
+    }
+
+    /**
+     * @return the adaptive fetch controller or null if another backoff strategy is used
+     */
+    public AdaptiveFetchController getAdaptiveFetchController() {
+        return backoffStrategy instanceof AdaptiveFetchController ? (AdaptiveFetchController) backoffStrategy : null;
+    }
+
+    public void addFetchAndLockListener(FetchAndLockListener fetchAndLockListener) {
+        fetchAndLockListeners.add(fetchAndLockListener);
+    }
+
+    @Override
+    protected void subscribe(TopicSubscription subscription) {
+        ExternalTaskHandler externalTaskHandler = subscription.getExternalTaskHandler();
+        if (externalTaskHandler instanceof CapacityAwareExternalTaskHandler) {
+            ((CapacityAwareExternalTaskHandler) externalTaskHandler).setSlotReleasedListener(this::resume);
+        }
+        super.subscribe(subscription);
+    }
+
+    /**
+     * Waits until at least one subscribed topic has a free slot.
+     *
+     * @return true if tasks can be acquired, false if the wait timed out or the manager has been stopped
+     */
+    protected boolean awaitFreeSlot() {
+        ACQUISITION_MONITOR.lock();
+        try {
+            if (isRunning.get() && isSaturated()) {
+                IS_WAITING.await(SATURATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            ACQUISITION_MONITOR.unlock();
+        }
+    }
+
+    protected boolean isSaturated() {
+        if (subscriptions.isEmpty()) {
+            return false;
+        }
+        for (TopicSubscription subscription : subscriptions) {
+            if (getFreeSlots(subscription.getExternalTaskHandler()) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected int getFreeSlots(ExternalTaskHandler externalTaskHandler) {
+        if (externalTaskHandler instanceof CapacityAwareExternalTaskHandler) {
+            return ((CapacityAwareExternalTaskHandler) externalTaskHandler).getFreeSlots();
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Notifies a listener before the outcome of the task is reported, no matter on which thread that happens.
+     */
+    protected static class CompletionReportingExternalTaskService extends DelegatingExternalTaskService {
+
+        protected final Runnable completionListener;
+
+        protected CompletionReportingExternalTaskService(ExternalTaskService delegate, Runnable completionListener) {
+            super(delegate);
+            this.completionListener = completionListener;
+        }
+
+        @Override
+        public void complete(ExternalTask externalTask) {
+            completionListener.run();
+            delegate.complete(externalTask);
+        }
+
+        @Override
+        public void complete(ExternalTask externalTask, Map<String, Object> variables) {
+            completionListener.run();
+            delegate.complete(externalTask, variables);
+        }
+
+        @Override
+        public void complete(ExternalTask externalTask, Map<String, Object> variables, Map<String, Object> localVariables) {
+            completionListener.run();
+            delegate.complete(externalTask, variables, localVariables);
+        }
+
+        @Override
+        public void complete(String externalTaskId, Map<String, Object> variables, Map<String, Object> localVariables) {
+            completionListener.run();
+            delegate.complete(externalTaskId, variables, localVariables);
+        }
+
+        @Override
+        public void handleFailure(ExternalTask externalTask, String errorMessage, String errorDetails, int retries, long retryTimeout) {
+            completionListener.run();
+            delegate.handleFailure(externalTask, errorMessage, errorDetails, retries, retryTimeout);
+        }
+
+        @Override
+        public void handleFailure(String externalTaskId, String errorMessage, String errorDetails, int retries, long retryTimeout) {
+            completionListener.run();
+            delegate.handleFailure(externalTaskId, errorMessage, errorDetails, retries, retryTimeout);
+        }
+
+        @Override
+        public void handleFailure(String externalTaskId, String errorMessage, String errorDetails, int retries, long retryTimeout, Map<String, Object> variables, Map<String, Object> localVariables) {
+            completionListener.run();
+            delegate.handleFailure(externalTaskId, errorMessage, errorDetails, retries, retryTimeout, variables, localVariables);
+        }
+
+        @Override
+        public void handleBpmnError(ExternalTask externalTask, String errorCode) {
+            completionListener.run();
+            delegate.handleBpmnError(externalTask, errorCode);
+        }
+
+        @Override
+        public void handleBpmnError(ExternalTask externalTask, String errorCode, String errorMessage) {
+            completionListener.run();
+            delegate.handleBpmnError(externalTask, errorCode, errorMessage);
+        }
+
+        @Override
+        public void handleBpmnError(ExternalTask externalTask, String errorCode, String errorMessage, Map<String, Object> variables) {
+            completionListener.run();
+            delegate.handleBpmnError(externalTask, errorCode, errorMessage, variables);
+        }
+
+        @Override
+        public void handleBpmnError(String externalTaskId, String errorCode, String errorMessage, Map<String, Object> variables) {
+            completionListener.run();
+            delegate.handleBpmnError(externalTaskId, errorCode, errorMessage, variables);
+        }
+    }
+}
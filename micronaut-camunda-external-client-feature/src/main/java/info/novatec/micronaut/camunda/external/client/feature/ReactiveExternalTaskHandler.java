@@ -0,0 +1,31 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import org.camunda.bpm.client.task.ExternalTask;
+import org.reactivestreams.Publisher;
+
+/**
+ * Reactive alternative to {@link org.camunda.bpm.client.task.ExternalTaskHandler}. Beans annotated with
+ * {@link ExternalTaskSubscription} are subscribed like external task handlers and the first outcome emitted by the
+ * returned publisher is reported to the engine.
+ */
+@FunctionalInterface
+public interface ReactiveExternalTaskHandler {
+
+    Publisher<ExternalTaskOutcome> execute(ExternalTask externalTask);
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.camunda.bpm.client.impl.RequestExecutor;
+import org.camunda.bpm.client.interceptor.ClientRequestInterceptor;
+
+import java.util.List;
+
+/**
+ * Replaces the transport used by the external task client to call the Camunda Platform REST API. If no bean of this
+ * type exists, the default Apache HttpClient based transport of the external task client is used.
+ */
+@FunctionalInterface
+public interface RequestExecutorFactory {
+
+    /**
+     * @param interceptors the interceptors which must be applied to every request
+     * @param objectMapper the object mapper configured by the external task client to de-/serialize requests and responses
+     * @param asyncResponseTimeout the long polling timeout of fetch and lock requests in milliseconds, may be null
+     * @return the request executor
+     */
+    RequestExecutor create(List<ClientRequestInterceptor> interceptors, ObjectMapper objectMapper, Long asyncResponseTimeout);
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.http;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.HttpClientConfiguration;
+import io.micronaut.runtime.ApplicationConfiguration;
+
+/**
+ * Configuration of the Micronaut HTTP client which is used to communicate with the Camunda Platform REST API if
+ * {@code camunda.external-client.http.enabled} is set to true. Supports all properties of
+ * {@link HttpClientConfiguration}, e.g. read-timeout, connect-timeout, http-version and pool.max-connections.
+ */
+@ConfigurationProperties(EngineHttpClientConfiguration.PREFIX)
+@Requires(classes = HttpClient.class)
+@Requires(property = EngineHttpClientConfiguration.PREFIX + ".enabled", value = "true")
+public class EngineHttpClientConfiguration extends HttpClientConfiguration {
+
+    public static final String PREFIX = "camunda.external-client.http";
+
+    protected final EngineConnectionPoolConfiguration connectionPoolConfiguration;
+
+    public EngineHttpClientConfiguration(EngineConnectionPoolConfiguration connectionPoolConfiguration, ApplicationConfiguration applicationConfiguration) {
+        super(applicationConfiguration);
+        this.connectionPoolConfiguration = connectionPoolConfiguration;
+    }
+
+    @Override
+    public ConnectionPoolConfiguration getConnectionPoolConfiguration() {
+        return connectionPoolConfiguration;
+    }
+
+    @ConfigurationProperties(ConnectionPoolConfiguration.PREFIX)
+    @Requires(classes = HttpClient.class)
+    @Requires(property = EngineHttpClientConfiguration.PREFIX + ".enabled", value = "true")
+    public static class EngineConnectionPoolConfiguration extends ConnectionPoolConfiguration {
+    }
+}
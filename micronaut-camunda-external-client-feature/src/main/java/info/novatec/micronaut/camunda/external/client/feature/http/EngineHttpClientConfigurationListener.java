@@ -0,0 +1,71 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.http;
+
+import info.novatec.micronaut.camunda.external.client.feature.ClientConfiguration;
+import info.novatec.micronaut.camunda.external.client.feature.Configuration;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import io.micronaut.http.client.HttpClient;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Increases the read timeout of the {@link EngineHttpClientConfiguration} once it is created if it is shorter than the
+ * longest async response timeout of the configured external task clients, so that long polling requests do not time
+ * out. The HTTP client is shared by all external task clients, therefore its read timeout must cover all of them.
+ */
+@Singleton
+@Requires(classes = HttpClient.class)
+@Requires(property = EngineHttpClientConfiguration.PREFIX + ".enabled", value = "true")
+public class EngineHttpClientConfigurationListener implements BeanCreatedEventListener<EngineHttpClientConfiguration> {
+
+    private static final Logger log = LoggerFactory.getLogger(EngineHttpClientConfigurationListener.class);
+
+    protected final Configuration configuration;
+    protected final List<ClientConfiguration> clientConfigurations;
+
+    public EngineHttpClientConfigurationListener(Configuration configuration, List<ClientConfiguration> clientConfigurations) {
+        this.configuration = configuration;
+        this.clientConfigurations = clientConfigurations;
+    }
+
+    @Override
+    public EngineHttpClientConfiguration onCreated(BeanCreatedEvent<EngineHttpClientConfiguration> event) {
+        EngineHttpClientConfiguration httpClientConfiguration = event.getBean();
+        Optional<Long> asyncResponseTimeout = configuration.getAsyncResponseTimeout();
+        for (ClientConfiguration clientConfiguration : clientConfigurations) {
+            Optional<Long> clientAsyncResponseTimeout = clientConfiguration.getAsyncResponseTimeout();
+            if (clientAsyncResponseTimeout.isPresent() && (!asyncResponseTimeout.isPresent() || clientAsyncResponseTimeout.get() > asyncResponseTimeout.get())) {
+                asyncResponseTimeout = clientAsyncResponseTimeout;
+            }
+        }
+        if (asyncResponseTimeout.isPresent()) {
+            Duration minimumReadTimeout = Duration.ofMillis(asyncResponseTimeout.get()).plus(MicronautHttpRequestExecutorFactory.ASYNC_RESPONSE_TIMEOUT_MARGIN);
+            if (httpClientConfiguration.getReadTimeout().map(readTimeout -> readTimeout.compareTo(minimumReadTimeout) < 0).orElse(false)) {
+                log.info("Increasing read timeout of the engine HTTP client to {} to support the async response timeout", minimumReadTimeout);
+                httpClientConfiguration.setReadTimeout(minimumReadTimeout);
+            }
+        }
+        return httpClientConfiguration;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.http;
+
+import org.camunda.bpm.client.impl.EngineClientException;
+
+/**
+ * Signals a failed request to the Camunda Platform REST API. Like the default transport, the cause is either a
+ * {@link org.camunda.bpm.client.exception.RestException} or an {@link java.io.IOException} which is translated by
+ * the external task client into the corresponding {@link org.camunda.bpm.client.exception.ExternalTaskClientException}.
+ */
+public class MicronautEngineClientException extends EngineClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MicronautEngineClientException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
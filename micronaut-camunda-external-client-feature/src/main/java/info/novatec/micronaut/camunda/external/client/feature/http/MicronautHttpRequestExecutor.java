@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.MutableHttpRequest;
+import io.micronaut.http.client.BlockingHttpClient;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.exceptions.HttpClientException;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import org.camunda.bpm.client.exception.RestException;
+import org.camunda.bpm.client.impl.EngineRestExceptionDto;
+import org.camunda.bpm.client.impl.RequestDto;
+import org.camunda.bpm.client.impl.RequestExecutor;
+import org.camunda.bpm.client.interceptor.ClientRequestInterceptor;
+import org.camunda.bpm.client.interceptor.impl.RequestInterceptorHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Executes the requests of the external task client with the Netty based Micronaut {@link HttpClient} instead of the
+ * Apache HttpClient. The external task client API is synchronous, so the calling thread still waits for the response,
+ * but connections are pooled and kept alive by the event loop of Micronaut.
+ */
+public class MicronautHttpRequestExecutor extends RequestExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(MicronautHttpRequestExecutor.class);
+
+    protected static final String USER_AGENT = "Camunda External Task Client";
+
+    protected final BlockingHttpClient blockingHttpClient;
+    protected final List<ClientRequestInterceptor> interceptors;
+
+    public MicronautHttpRequestExecutor(HttpClient httpClient, List<ClientRequestInterceptor> interceptors, ObjectMapper objectMapper) {
+        super(new RequestInterceptorHandler(interceptors), objectMapper);
+        this.blockingHttpClient = httpClient.toBlocking();
+        this.interceptors = interceptors;
+    }
+
+    @Override
+    protected void initHttpClient(RequestInterceptorHandler requestInterceptorHandler) {
+        // the Micronaut HTTP client is used instead
+    }
+
+    @Override
+    protected <T> T postRequest(String resourceUrl, RequestDto requestDto, Class<T> responseClass) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(requestDto);
+        } catch (JsonProcessingException e) {
+            throw new MicronautEngineClientException("Exception while serializing request to " + resourceUrl, e);
+        }
+        return executeRequest(HttpRequest.POST(resourceUrl, body), responseClass);
+    }
+
+    @Override
+    protected byte[] getRequest(String resourceUrl) {
+        return executeRequest(HttpRequest.GET(resourceUrl), byte[].class);
+    }
+
+    protected <T> T executeRequest(MutableHttpRequest<?> request, Class<T> responseClass) {
+        request.header("User-Agent", USER_AGENT)
+                .contentType(MediaType.APPLICATION_JSON_TYPE);
+        applyInterceptors(request);
+
+        HttpResponse<byte[]> response;
+        try {
+            response = blockingHttpClient.exchange(request, Argument.of(byte[].class), Argument.of(byte[].class));
+        } catch (HttpClientResponseException e) {
+            throw new MicronautEngineClientException("Request " + request.getMethodName() + " " + request.getUri() + " failed", toRestException(e));
+        } catch (HttpClientException e) {
+            throw new MicronautEngineClientException("Exception while establishing connection for request " + request.getMethodName() + " " + request.getUri(), new IOException(e.getMessage(), e));
+        }
+        return deserializeResponse(response.getBody().orElse(null), responseClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T> T deserializeResponse(byte[] body, Class<T> responseClass) {
+        if (body == null || responseClass.isAssignableFrom(Void.class)) {
+            return null;
+        }
+        if (responseClass.isAssignableFrom(byte[].class)) {
+            return (T) body;
+        }
+        try {
+            return objectMapper.readValue(body, responseClass);
+        } catch (IOException e) {
+            throw new MicronautEngineClientException("Exception while deserializing response to " + responseClass.getName(), e);
+        }
+    }
+
+    protected RestException toRestException(HttpClientResponseException e) {
+        RestException restException;
+        try {
+            byte[] body = e.getResponse().getBody(byte[].class).orElse(null);
+            restException = body != null
+                    ? objectMapper.readValue(body, EngineRestExceptionDto.class).toRestException()
+                    : new RestException(e.getMessage(), null, null);
+        } catch (IOException | RuntimeException parseException) {
+            restException = new RestException(e.getMessage(), e);
+        }
+        restException.setHttpStatusCode(e.getStatus().getCode());
+        return restException;
+    }
+
+    protected void applyInterceptors(MutableHttpRequest<?> request) {
+        for (ClientRequestInterceptor interceptor : interceptors) {
+            try {
+                interceptor.intercept(request::header);
+            } catch (Throwable e) {
+                log.error("Exception while executing request interceptor", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import info.novatec.micronaut.camunda.external.client.feature.RequestExecutorFactory;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import jakarta.inject.Singleton;
+import org.camunda.bpm.client.impl.RequestExecutor;
+import org.camunda.bpm.client.interceptor.ClientRequestInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Creates a {@link MicronautHttpRequestExecutor} for every external task client if
+ * {@code camunda.external-client.http.enabled} is set to true.
+ * <p>
+ * All external task clients, i.e. named clients and additional fetch loops, share a single {@link HttpClient} of the
+ * application context which is configured by {@link EngineHttpClientConfiguration}. Therefore, they share the event
+ * loop and the connection pool, and the application context closes the client.
+ */
+@Singleton
+@Requires(classes = HttpClient.class)
+@Requires(property = EngineHttpClientConfiguration.PREFIX + ".enabled", value = "true")
+public class MicronautHttpRequestExecutorFactory implements RequestExecutorFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(MicronautHttpRequestExecutorFactory.class);
+
+    /**
+     * Additional time granted to the engine to answer a long polling request before the read timeout is reached.
+     */
+    protected static final Duration ASYNC_RESPONSE_TIMEOUT_MARGIN = Duration.ofSeconds(5);
+
+    protected final EngineHttpClientConfiguration configuration;
+    protected final HttpClient httpClient;
+
+    /**
+     * @param configuration the configuration of the HTTP client
+     * @param httpClient the HTTP client, the requests of the external task client use absolute URLs, therefore no
+     *                   base URL is required
+     */
+    public MicronautHttpRequestExecutorFactory(EngineHttpClientConfiguration configuration,
+                                               @Client(configuration = EngineHttpClientConfiguration.class) HttpClient httpClient) {
+        this.configuration = configuration;
+        this.httpClient = httpClient;
+        log.info("Using Micronaut HTTP client ({}) to communicate with the Camunda Platform REST API", configuration.getHttpVersion());
+    }
+
+    @Override
+    public RequestExecutor create(List<ClientRequestInterceptor> interceptors, ObjectMapper objectMapper, Long asyncResponseTimeout) {
+        if (asyncResponseTimeout != null) {
+            // the read timeout is raised for the configured clients by EngineHttpClientConfigurationListener
+            Duration minimumReadTimeout = Duration.ofMillis(asyncResponseTimeout).plus(ASYNC_RESPONSE_TIMEOUT_MARGIN);
+            if (configuration.getReadTimeout().map(readTimeout -> readTimeout.compareTo(minimumReadTimeout) < 0).orElse(false)) {
+                log.warn("Read timeout of the engine HTTP client is shorter than {}, long polling requests with an async response timeout of {}ms may time out",
+                        minimumReadTimeout, asyncResponseTimeout);
+            }
+        }
+        return new MicronautHttpRequestExecutor(httpClient, interceptors, objectMapper);
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+}
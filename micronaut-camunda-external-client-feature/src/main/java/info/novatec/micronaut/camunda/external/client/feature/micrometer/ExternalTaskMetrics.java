@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.micrometer;
+
+import info.novatec.micronaut.camunda.external.client.feature.AsyncExternalTaskHandler;
+import info.novatec.micronaut.camunda.external.client.feature.ExternalTaskHandlerDecorator;
+import info.novatec.micronaut.camunda.external.client.feature.FetchAndLockListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import jakarta.inject.Singleton;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+import org.camunda.bpm.client.topic.impl.dto.FetchAndLockResponseDto;
+import org.camunda.bpm.client.topic.impl.dto.TopicRequestDto;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records Micrometer metrics for fetch and lock requests, handler executions and the calls of the
+ * {@link org.camunda.bpm.client.task.ExternalTaskService}. Active as soon as a {@link MeterRegistry} is available,
+ * e.g. by adding micronaut-micrometer-core, unless camunda.external-client.metrics.enabled is set to false.
+ *
+ * All meters of a topic are registered once, so recording a measurement does not allocate tags. The execution of an
+ * {@link AsyncExternalTaskHandler} is recorded when the returned stage completes.
+ */
+@Singleton
+@Requires(classes = MeterRegistry.class)
+@Requires(beans = MeterRegistry.class)
+@Requires(property = "camunda.external-client.metrics.enabled", notEquals = "false")
+public class ExternalTaskMetrics implements ExternalTaskHandlerDecorator, FetchAndLockListener {
+
+    protected final MeterRegistry meterRegistry;
+    protected final ConcurrentMap<String, TopicMetrics> topicMetrics = new ConcurrentHashMap<>();
+    // topics of asynchronous handlers, whose decorated handler only starts the execution
+    protected final Set<String> asyncTopics = ConcurrentHashMap.newKeySet();
+
+    public ExternalTaskMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ExternalTaskHandler decorate(ExternalTaskHandler externalTaskHandler, String topicName, long lockDuration) {
+        return new MeteredExternalTaskHandler(externalTaskHandler, getTopicMetrics(topicName), lockDuration, !asyncTopics.contains(topicName));
+    }
+
+    @Override
+    public AsyncExternalTaskHandler decorateAsync(AsyncExternalTaskHandler asyncExternalTaskHandler, String topicName, long lockDuration) {
+        asyncTopics.add(topicName);
+        return new MeteredAsyncExternalTaskHandler(asyncExternalTaskHandler, getTopicMetrics(topicName));
+    }
+
+    @Override
+    public void onFetchAndLock(List<TopicRequestDto> topics, FetchAndLockResponseDto response, long durationNanos) {
+        List<ExternalTask> externalTasks = response.getExternalTasks();
+        for (TopicRequestDto topic : topics) {
+            String topicName = topic.getTopicName();
+            int fetchedTasks = 0;
+            for (ExternalTask externalTask : externalTasks) {
+                if (topicName.equals(externalTask.getTopicName())) {
+                    fetchedTasks++;
+                }
+            }
+            getTopicMetrics(topicName).recordFetch(durationNanos, fetchedTasks, response.hasError());
+        }
+    }
+
+    public TopicMetrics getTopicMetrics(String topicName) {
+        return topicMetrics.computeIfAbsent(topicName, it -> new TopicMetrics(meterRegistry, it));
+    }
+}
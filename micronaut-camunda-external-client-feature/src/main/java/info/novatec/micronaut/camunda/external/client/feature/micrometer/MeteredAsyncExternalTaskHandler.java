@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.micrometer;
+
+import info.novatec.micronaut.camunda.external.client.feature.AsyncExternalTaskHandler;
+import info.novatec.micronaut.camunda.external.client.feature.ExternalTaskOutcome;
+import org.camunda.bpm.client.task.ExternalTask;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Records the execution time of the wrapped asynchronous handler from the start of the execution until the returned
+ * stage completes.
+ */
+public class MeteredAsyncExternalTaskHandler implements AsyncExternalTaskHandler {
+
+    protected final AsyncExternalTaskHandler asyncExternalTaskHandler;
+    protected final TopicMetrics topicMetrics;
+
+    public MeteredAsyncExternalTaskHandler(AsyncExternalTaskHandler asyncExternalTaskHandler, TopicMetrics topicMetrics) {
+        this.asyncExternalTaskHandler = asyncExternalTaskHandler;
+        this.topicMetrics = topicMetrics;
+    }
+
+    @Override
+    public CompletionStage<ExternalTaskOutcome> execute(ExternalTask externalTask) {
+        long start = System.nanoTime();
+        CompletionStage<ExternalTaskOutcome> outcome;
+        try {
+            outcome = asyncExternalTaskHandler.execute(externalTask);
+        } catch (RuntimeException | Error e) {
+            topicMetrics.recordExecution(System.nanoTime() - start);
+            throw e;
+        }
+        return outcome.whenComplete((externalTaskOutcome, error) -> topicMetrics.recordExecution(System.nanoTime() - start));
+    }
+
+    public AsyncExternalTaskHandler getAsyncExternalTaskHandler() {
+        return asyncExternalTaskHandler;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.micrometer;
+
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskHandler;
+import org.camunda.bpm.client.task.ExternalTaskService;
+
+/**
+ * Records the execution time of the wrapped handler and passes an instrumented {@link ExternalTaskService} to it. For
+ * asynchronous handlers the execution time is recorded by {@link MeteredAsyncExternalTaskHandler} instead.
+ * <p>
+ * The instrumented service is allocated per task because it keeps the time the task was locked at, and the client may
+ * pass a different service for every task anyway.
+ */
+public class MeteredExternalTaskHandler implements ExternalTaskHandler {
+
+    protected final ExternalTaskHandler externalTaskHandler;
+    protected final TopicMetrics topicMetrics;
+    protected final long lockDuration;
+    protected final boolean recordExecution;
+
+    public MeteredExternalTaskHandler(ExternalTaskHandler externalTaskHandler, TopicMetrics topicMetrics, long lockDuration) {
+        this(externalTaskHandler, topicMetrics, lockDuration, true);
+    }
+
+    /**
+     * @param externalTaskHandler the handler to decorate
+     * @param topicMetrics the metrics of the topic
+     * @param lockDuration the lock duration of the topic
+     * @param recordExecution false if the handler only starts an asynchronous execution
+     */
+    public MeteredExternalTaskHandler(ExternalTaskHandler externalTaskHandler, TopicMetrics topicMetrics, long lockDuration, boolean recordExecution) {
+        this.externalTaskHandler = externalTaskHandler;
+        this.topicMetrics = topicMetrics;
+        this.lockDuration = lockDuration;
+        this.recordExecution = recordExecution;
+    }
+
+    @Override
+    public void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        if (!recordExecution) {
+            externalTaskHandler.execute(externalTask, new MeteredExternalTaskService(externalTaskService, topicMetrics, lockDuration, externalTask));
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            externalTaskHandler.execute(externalTask, new MeteredExternalTaskService(externalTaskService, topicMetrics, lockDuration, externalTask));
+        } finally {
+            topicMetrics.recordExecution(System.nanoTime() - start);
+        }
+    }
+
+    public ExternalTaskHandler getExternalTaskHandler() {
+        return externalTaskHandler;
+    }
+}
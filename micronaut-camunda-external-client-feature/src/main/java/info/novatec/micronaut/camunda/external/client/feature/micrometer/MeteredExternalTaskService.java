@@ -0,0 +1,208 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.micrometer;
+
+import info.novatec.micronaut.camunda.external.client.feature.DelegatingExternalTaskService;
+import info.novatec.micronaut.camunda.external.client.feature.micrometer.TopicMetrics.Outcome;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskService;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Records count and latency of complete, failure and BPMN error calls. For calls which pass the {@link ExternalTask}
+ * the time since lock acquisition is recorded as well as whether the lock had already expired.
+ * <p>
+ * The lock expiration time of a task is moved forward by lock extensions, so the time of lock acquisition is captured
+ * when the service is created for a task. For other tasks it is derived from their current lock expiration time.
+ */
+public class MeteredExternalTaskService extends DelegatingExternalTaskService {
+
+    protected final TopicMetrics topicMetrics;
+    protected final long lockDuration;
+    protected final String externalTaskId;
+    protected final long lockedAt;
+
+    public MeteredExternalTaskService(ExternalTaskService delegate, TopicMetrics topicMetrics, long lockDuration) {
+        super(delegate);
+        this.topicMetrics = topicMetrics;
+        this.lockDuration = lockDuration;
+        this.externalTaskId = null;
+        this.lockedAt = 0;
+    }
+
+    /**
+     * @param delegate the service to decorate
+     * @param topicMetrics the metrics of the topic
+     * @param lockDuration the lock duration of the topic
+     * @param externalTask the task the service is created for before its lock is extended
+     */
+    public MeteredExternalTaskService(ExternalTaskService delegate, TopicMetrics topicMetrics, long lockDuration, ExternalTask externalTask) {
+        super(delegate);
+        this.topicMetrics = topicMetrics;
+        this.lockDuration = lockDuration;
+        Date lockExpirationTime = externalTask.getLockExpirationTime();
+        this.externalTaskId = lockExpirationTime != null ? externalTask.getId() : null;
+        this.lockedAt = lockExpirationTime != null ? lockExpirationTime.getTime() - lockDuration : 0;
+    }
+
+    @Override
+    public void complete(ExternalTask externalTask) {
+        long start = start(externalTask);
+        boolean error = true;
+        try {
+            delegate.complete(externalTask);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.COMPLETE, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void complete(ExternalTask externalTask, Map<String, Object> variables) {
+        long start = start(externalTask);
+        boolean error = true;
+        try {
+            delegate.complete(externalTask, variables);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.COMPLETE, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void complete(ExternalTask externalTask, Map<String, Object> variables, Map<String, Object> localVariables) {
+        long start = start(externalTask);
+        boolean error = true;
+        try {
+            delegate.complete(externalTask, variables, localVariables);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.COMPLETE, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void complete(String externalTaskId, Map<String, Object> variables, Map<String, Object> localVariables) {
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            delegate.complete(externalTaskId, variables, localVariables);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.COMPLETE, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void handleFailure(ExternalTask externalTask, String errorMessage, String errorDetails, int retries, long retryTimeout) {
+        long start = start(externalTask);
+        boolean error = true;
+        try {
+            delegate.handleFailure(externalTask, errorMessage, errorDetails, retries, retryTimeout);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.FAILURE, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void handleFailure(String externalTaskId, String errorMessage, String errorDetails, int retries, long retryTimeout) {
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            delegate.handleFailure(externalTaskId, errorMessage, errorDetails, retries, retryTimeout);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.FAILURE, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void handleFailure(String externalTaskId, String errorMessage, String errorDetails, int retries, long retryTimeout, Map<String, Object> variables, Map<String, Object> localVariables) {
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            delegate.handleFailure(externalTaskId, errorMessage, errorDetails, retries, retryTimeout, variables, localVariables);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.FAILURE, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void handleBpmnError(ExternalTask externalTask, String errorCode) {
+        long start = start(externalTask);
+        boolean error = true;
+        try {
+            delegate.handleBpmnError(externalTask, errorCode);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.BPMN_ERROR, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void handleBpmnError(ExternalTask externalTask, String errorCode, String errorMessage) {
+        long start = start(externalTask);
+        boolean error = true;
+        try {
+            delegate.handleBpmnError(externalTask, errorCode, errorMessage);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.BPMN_ERROR, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void handleBpmnError(ExternalTask externalTask, String errorCode, String errorMessage, Map<String, Object> variables) {
+        long start = start(externalTask);
+        boolean error = true;
+        try {
+            delegate.handleBpmnError(externalTask, errorCode, errorMessage, variables);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.BPMN_ERROR, System.nanoTime() - start, error);
+        }
+    }
+
+    @Override
+    public void handleBpmnError(String externalTaskId, String errorCode, String errorMessage, Map<String, Object> variables) {
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            delegate.handleBpmnError(externalTaskId, errorCode, errorMessage, variables);
+            error = false;
+        } finally {
+            topicMetrics.recordOutcome(Outcome.BPMN_ERROR, System.nanoTime() - start, error);
+        }
+    }
+
+    /**
+     * Records the lock metrics of the given task and returns the start time of the outcome call.
+     */
+    protected long start(ExternalTask externalTask) {
+        Date lockExpirationTime = externalTask.getLockExpirationTime();
+        if (lockExpirationTime != null) {
+            long now = System.currentTimeMillis();
+            long expiration = lockExpirationTime.getTime();
+            long acquired = externalTaskId != null && externalTaskId.equals(externalTask.getId()) ? lockedAt : expiration - lockDuration;
+            topicMetrics.recordLock(Math.max(0, now - acquired), now > expiration);
+        }
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.micrometer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The meters of a single topic. They are registered on creation and only updated afterwards.
+ */
+public class TopicMetrics {
+
+    public static final String PREFIX = "camunda.external-task";
+    public static final String TAG_TOPIC = "topic";
+    public static final String TAG_OUTCOME = "outcome";
+    public static final String TAG_RESULT = "result";
+
+    /**
+     * The ways to finish an external task with the {@link org.camunda.bpm.client.task.ExternalTaskService}.
+     */
+    public enum Outcome {
+        COMPLETE("complete"),
+        FAILURE("failure"),
+        BPMN_ERROR("bpmn-error");
+
+        private final String tagValue;
+
+        Outcome(String tagValue) {
+            this.tagValue = tagValue;
+        }
+    }
+
+    protected final Timer fetchSuccess;
+    protected final Timer fetchError;
+    protected final DistributionSummary fetchedTasks;
+    protected final Timer execution;
+    protected final Timer[] outcomeSuccess = new Timer[Outcome.values().length];
+    protected final Timer[] outcomeError = new Timer[Outcome.values().length];
+    protected final Timer lockHeld;
+    protected final Counter lockExpired;
+
+    public TopicMetrics(MeterRegistry meterRegistry, String topicName) {
+        fetchSuccess = Timer.builder(PREFIX + ".fetch")
+                .description("Duration of fetch and lock requests including the topic")
+                .tags(TAG_TOPIC, topicName, TAG_RESULT, "success")
+                .register(meterRegistry);
+        fetchError = Timer.builder(PREFIX + ".fetch")
+                .description("Duration of fetch and lock requests including the topic")
+                .tags(TAG_TOPIC, topicName, TAG_RESULT, "error")
+                .register(meterRegistry);
+        fetchedTasks = DistributionSummary.builder(PREFIX + ".fetch.tasks")
+                .description("Tasks of the topic locked by a single fetch and lock request")
+                .tags(TAG_TOPIC, topicName)
+                .register(meterRegistry);
+        execution = Timer.builder(PREFIX + ".execution")
+                .description("Duration of the handler execution")
+                .tags(TAG_TOPIC, topicName)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (Outcome outcome : Outcome.values()) {
+            outcomeSuccess[outcome.ordinal()] = Timer.builder(PREFIX + ".outcome")
+                    .description("Duration of reporting the outcome of a task to the engine")
+                    .tags(TAG_TOPIC, topicName, TAG_OUTCOME, outcome.tagValue, TAG_RESULT, "success")
+                    .register(meterRegistry);
+            outcomeError[outcome.ordinal()] = Timer.builder(PREFIX + ".outcome")
+                    .description("Duration of reporting the outcome of a task to the engine")
+                    .tags(TAG_TOPIC, topicName, TAG_OUTCOME, outcome.tagValue, TAG_RESULT, "error")
+                    .register(meterRegistry);
+        }
+        lockHeld = Timer.builder(PREFIX + ".lock.held")
+                .description("Time from lock acquisition or the last lock extension until the outcome of a task was reported")
+                .tags(TAG_TOPIC, topicName)
+                .register(meterRegistry);
+        lockExpired = Counter.builder(PREFIX + ".lock.expired")
+                .description("Tasks whose outcome was reported after their lock expired")
+                .tags(TAG_TOPIC, topicName)
+                .register(meterRegistry);
+    }
+
+    public void recordFetch(long durationNanos, int tasks, boolean error) {
+        (error ? fetchError : fetchSuccess).record(durationNanos, TimeUnit.NANOSECONDS);
+        if (!error) {
+            fetchedTasks.record(tasks);
+        }
+    }
+
+    public void recordExecution(long durationNanos) {
+        execution.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordOutcome(Outcome outcome, long durationNanos, boolean error) {
+        (error ? outcomeError : outcomeSuccess)[outcome.ordinal()].record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLock(long heldMillis, boolean expired) {
+        lockHeld.record(heldMillis, TimeUnit.MILLISECONDS);
+        if (expired) {
+            lockExpired.increment();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import info.novatec.micronaut.camunda.external.client.feature.AdaptiveFetchController
+import org.assertj.core.api.Assertions.assertThat
+import org.camunda.bpm.client.exception.ExternalTaskClientException
+import org.camunda.bpm.client.task.ExternalTask
+import org.junit.jupiter.api.Test
+import java.lang.reflect.Proxy
+import java.util.Date
+
+class AdaptiveFetchControllerTest {
+
+    @Test
+    fun `fetch limit is halved if the lock is almost expired`() {
+        val controller = AdaptiveFetchController(2, 20, 60000)
+
+        handleBatch(controller, 20, remainingLock = 100, lockDuration = 1000)
+        assertThat(controller.fetchLimit).isEqualTo(10)
+
+        repeat(5) { handleBatch(controller, controller.fetchLimit, remainingLock = 100, lockDuration = 1000) }
+        assertThat(controller.fetchLimit).isEqualTo(2)
+    }
+
+    @Test
+    fun `fetch limit is increased for full batches with enough lock time left`() {
+        val controller = AdaptiveFetchController(1, 20, 60000)
+        handleBatch(controller, 20, remainingLock = 100, lockDuration = 1000)
+
+        handleBatch(controller, 10, remainingLock = 900, lockDuration = 1000)
+        assertThat(controller.fetchLimit).isEqualTo(12)
+
+        handleBatch(controller, 5, remainingLock = 900, lockDuration = 1000)
+        assertThat(controller.fetchLimit).isEqualTo(12)
+
+        repeat(10) { handleBatch(controller, controller.fetchLimit, remainingLock = 900, lockDuration = 1000) }
+        assertThat(controller.fetchLimit).isEqualTo(20)
+    }
+
+    @Test
+    fun `backs off exponentially while idle or failing`() {
+        val controller = AdaptiveFetchController(1, 10, 3000)
+
+        controller.reconfigure(emptyList(), null)
+        assertThat(controller.calculateBackoffTime()).isEqualTo(500)
+        controller.reconfigure(emptyList(), ExternalTaskClientException("test", null))
+        assertThat(controller.calculateBackoffTime()).isEqualTo(1000)
+        repeat(5) { controller.reconfigure(emptyList(), null) }
+        assertThat(controller.calculateBackoffTime()).isEqualTo(3000)
+
+        handleBatch(controller, 1, remainingLock = 900, lockDuration = 1000)
+        assertThat(controller.calculateBackoffTime()).isEqualTo(0)
+    }
+
+    @Test
+    fun `reported outcomes take precedence over the lock left after dispatching`() {
+        val controller = AdaptiveFetchController(1, 20, 60000)
+        val lockedAt = System.currentTimeMillis() - 900
+
+        // tasks of a previous batch reported their outcome with only 10% of the lock left
+        controller.onTaskCompleted(lockedAt, lockedAt + 1000, lockedAt + 900)
+        controller.onTaskCompleted(lockedAt, lockedAt + 1000, lockedAt + 500)
+        handleBatch(controller, 20, remainingLock = 1000, lockDuration = 1000)
+        assertThat(controller.fetchLimit).isEqualTo(10)
+
+        // the reported outcomes are only considered once
+        handleBatch(controller, 10, remainingLock = 1000, lockDuration = 1000)
+        assertThat(controller.fetchLimit).isEqualTo(12)
+    }
+
+    @Test
+    fun `throughput is derived from reported outcomes instead of dispatched tasks`() {
+        val controller = AdaptiveFetchController(1, 100, 60000)
+        // starts the time window
+        controller.reconfigure(emptyList(), null)
+
+        // a large batch dispatched within the window does not count
+        handleBatch(controller, 100, remainingLock = 900, lockDuration = 1000)
+        val lockedAt = System.currentTimeMillis()
+        repeat(10) { controller.onTaskCompleted(lockedAt, lockedAt + 1000, lockedAt + 100) }
+        Thread.sleep(1000)
+        handleBatch(controller, 100, remainingLock = 900, lockDuration = 1000)
+
+        assertThat(controller.throughput).isBetween(5.0, 10.0)
+    }
+
+    private fun handleBatch(controller: AdaptiveFetchController, tasks: Int, remainingLock: Long, lockDuration: Long) {
+        // the tasks are locked for lock duration and the given lock time remains when the batch is reconfigured
+        val lockExpirationTime = Date(System.currentTimeMillis() + remainingLock)
+        controller.onFetchAndLock(lockExpirationTime.time - lockDuration)
+        val externalTask = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTask::class.java)) { _, method, _ ->
+            if (method.name == "getLockExpirationTime") lockExpirationTime else null
+        } as ExternalTask
+        controller.reconfigure(List(tasks) { externalTask }, null)
+    }
+}
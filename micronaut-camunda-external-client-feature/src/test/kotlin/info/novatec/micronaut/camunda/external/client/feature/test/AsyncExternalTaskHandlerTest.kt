@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import info.novatec.micronaut.camunda.external.client.feature.AsyncExternalTaskHandler
+import info.novatec.micronaut.camunda.external.client.feature.AsyncExternalTaskHandlerAdapter
+import info.novatec.micronaut.camunda.external.client.feature.ExternalTaskOutcome
+import info.novatec.micronaut.camunda.external.client.feature.ReactiveExternalTaskHandler
+import io.micronaut.core.async.publisher.Publishers
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest
+import jakarta.inject.Inject
+import org.assertj.core.api.Assertions.assertThat
+import org.camunda.bpm.client.ExternalTaskClient
+import org.camunda.bpm.client.impl.ExternalTaskClientImpl
+import org.camunda.bpm.client.task.ExternalTask
+import org.camunda.bpm.client.task.ExternalTaskService
+import org.junit.jupiter.api.Test
+import java.lang.reflect.Proxy
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executor
+
+@MicronautTest
+class AsyncExternalTaskHandlerTest {
+
+    @Inject
+    lateinit var externalTaskClient: ExternalTaskClient
+
+    private val externalTask = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTask::class.java)) { _, _, _ -> null } as ExternalTask
+    private val reportedOutcomes = CopyOnWriteArrayList<String>()
+    private val externalTaskService = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTaskService::class.java)) { _, method, args ->
+        reportedOutcomes.add(method.name + (if (method.name == "handleBpmnError") ":" + args[1] else ""))
+        null
+    } as ExternalTaskService
+
+    @Test
+    fun `asynchronous handler is subscribed`() {
+        val subscription = (externalTaskClient as ExternalTaskClientImpl).topicSubscriptionManager.subscriptions
+            .find { it.topicName == "test-topic-async" }!!
+
+        assertThat(subscription.externalTaskHandler).isInstanceOf(AsyncExternalTaskHandlerAdapter::class.java)
+        assertThat((subscription.externalTaskHandler as AsyncExternalTaskHandlerAdapter).maxOutstandingTasks).isEqualTo(5)
+    }
+
+    @Test
+    fun `outcome is reported when the stage completes and outstanding tasks are limited`() {
+        val outcome = CompletableFuture<ExternalTaskOutcome>()
+        val adapter = createAdapter({ outcome }, maxOutstandingTasks = 1)
+
+        adapter.execute(externalTask, externalTaskService)
+        assertThat(adapter.freeSlots).isEqualTo(0)
+        assertThat(reportedOutcomes).isEmpty()
+
+        outcome.complete(ExternalTaskOutcome.complete(mapOf("result" to 42)))
+        assertThat(reportedOutcomes).containsExactly("complete")
+        assertThat(adapter.freeSlots).isEqualTo(1)
+    }
+
+    @Test
+    fun `failed stage releases the slot without reporting an outcome`() {
+        val adapter = createAdapter({ CompletableFuture<ExternalTaskOutcome>().apply { completeExceptionally(IllegalStateException("test")) } })
+
+        adapter.execute(externalTask, externalTaskService)
+
+        assertThat(reportedOutcomes).isEmpty()
+        assertThat(adapter.freeSlots).isEqualTo(2)
+    }
+
+    @Test
+    fun `first outcome of a publisher is reported`() {
+        val reactiveHandler = ReactiveExternalTaskHandler { Publishers.just(ExternalTaskOutcome.bpmnError("error-code")) }
+        val adapter = createAdapter(AsyncExternalTaskHandlerAdapter.adapt(reactiveHandler))
+
+        adapter.execute(externalTask, externalTaskService)
+
+        assertThat(reportedOutcomes).containsExactly("handleBpmnError:error-code")
+    }
+
+    private fun createAdapter(handler: AsyncExternalTaskHandler, maxOutstandingTasks: Int = 2) =
+        AsyncExternalTaskHandlerAdapter(handler, "test-topic", maxOutstandingTasks, Executor { it.run() }, { it }, null, 1000)
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import info.novatec.micronaut.camunda.external.client.feature.CompletionJournal
+import info.novatec.micronaut.camunda.external.client.feature.CompletionJournalEntry
+import info.novatec.micronaut.camunda.external.client.feature.CompletionJournalFlusher
+import info.novatec.micronaut.camunda.external.client.feature.MicronautEngineClient
+import info.novatec.micronaut.camunda.external.client.feature.MicronautExternalTaskClientBuilder
+import org.assertj.core.api.Assertions.assertThat
+import org.camunda.bpm.client.exception.RestException
+import org.camunda.bpm.client.impl.RequestDto
+import org.camunda.bpm.client.impl.RequestExecutor
+import org.camunda.bpm.client.task.impl.ExternalTaskImpl
+import org.camunda.bpm.client.task.impl.dto.ExtendLockRequestDto
+import org.camunda.bpm.client.topic.impl.dto.TopicRequestDto
+import org.camunda.bpm.client.interceptor.impl.RequestInterceptorHandler
+import org.camunda.bpm.client.variable.impl.TypedValueField
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Path
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+
+class CompletionJournalTest {
+
+    @TempDir
+    lateinit var directory: Path
+
+    @Test
+    fun `pending records are recovered and space is reclaimed`() {
+        val file = directory.resolve("journal")
+        CompletionJournal(file, 200).use { journal ->
+            val records = (1..3).map { journal.append(ByteArray(55) { i -> i.toByte() }) }
+            journal.acknowledge(records[0])
+            journal.acknowledge(records[1])
+            // does not fit behind the third record and requires compaction
+            journal.append("fourth".toByteArray())
+        }
+
+        CompletionJournal(file, 200).use { journal ->
+            val records = journal.pendingRecords
+            assertThat(records.map { it.payload.size }).containsExactly(55, 6)
+            assertThat(String(records[1].payload)).isEqualTo("fourth")
+
+            records.forEach { journal.acknowledge(it) }
+            repeat(10) { journal.acknowledge(journal.append(ByteArray(100))) }
+        }
+
+        CompletionJournal(file, 200).use { journal ->
+            assertThat(journal.pendingRecords).isEmpty()
+        }
+    }
+
+    @Test
+    fun `outcomes are retried and the lock is extended while pending`() {
+        val requestExecutor = RecordingRequestExecutor(failures = 2)
+        CompletionJournalFlusher(directory.resolve("journal"), 4096).use { flusher ->
+            val engineClient = buildClient(flusher, requestExecutor)
+
+            val variable = TypedValueField().apply { type = "String"; value = "done" }
+            assertThat(flusher.submit(engineClient, CompletionJournalEntry.complete("task-1", "test-worker", mapOf("result" to variable), emptyMap()))).isTrue
+
+            awaitNoPendingOutcomes(flusher)
+        }
+
+        assertThat(requestExecutor.requests.filter { it.endsWith("/complete") }).hasSize(3)
+        assertThat(requestExecutor.requests).contains("/external-task/task-1/extendLock")
+        assertThat(requestExecutor.payloads.last()).contains("\"result\"").contains("\"done\"")
+    }
+
+    @Test
+    fun `rejected outcomes are discarded`() {
+        val requestExecutor = RecordingRequestExecutor(failures = Int.MAX_VALUE, failureStatus = 404)
+        CompletionJournalFlusher(directory.resolve("journal"), 4096).use { flusher ->
+            val engineClient = buildClient(flusher, requestExecutor)
+
+            flusher.submit(engineClient, CompletionJournalEntry.bpmnError("task-1", "test-worker", "error", null, emptyMap()))
+
+            awaitNoPendingOutcomes(flusher)
+        }
+
+        assertThat(requestExecutor.requests).containsExactly("/external-task/task-1/bpmnError")
+    }
+
+    @Test
+    fun `outcomes are discarded after the maximum amount of retries`() {
+        val requestExecutor = RecordingRequestExecutor(failures = Int.MAX_VALUE, failureStatus = 500)
+        CompletionJournalFlusher(directory.resolve("journal"), 4096, 2).use { flusher ->
+            val engineClient = buildClient(flusher, requestExecutor)
+
+            flusher.submit(engineClient, CompletionJournalEntry.complete("task-1", "test-worker", emptyMap(), emptyMap()))
+
+            awaitNoPendingOutcomes(flusher)
+            val extendLockRequests = requestExecutor.requests.count { it.endsWith("/extendLock") }
+            Thread.sleep(1000)
+            assertThat(requestExecutor.requests.count { it.endsWith("/extendLock") }).isEqualTo(extendLockRequests)
+        }
+
+        assertThat(requestExecutor.requests.filter { it.endsWith("/complete") }).hasSize(3)
+    }
+
+    @Test
+    fun `pending outcomes are sent after a restart`() {
+        val file = directory.resolve("journal")
+        CompletionJournalFlusher(file, 4096).use { flusher ->
+            val engineClient = buildClient(flusher, RecordingRequestExecutor(failures = Int.MAX_VALUE))
+
+            flusher.submit(engineClient, CompletionJournalEntry.failure("task-1", "test-worker", "failed", null, 2, 1000, emptyMap(), emptyMap()))
+            flusher.submit(engineClient, CompletionJournalEntry.complete("task-2", "test-worker", emptyMap(), emptyMap()))
+            assertThat(flusher.pendingCount).isEqualTo(2)
+        }
+
+        val requestExecutor = RecordingRequestExecutor()
+        CompletionJournalFlusher(file, 4096).use { flusher ->
+            assertThat(flusher.pendingCount).isEqualTo(2)
+            buildClient(flusher, requestExecutor)
+
+            awaitNoPendingOutcomes(flusher)
+        }
+
+        assertThat(requestExecutor.requests.filter { !it.endsWith("/extendLock") })
+            .containsExactlyInAnyOrder("/external-task/task-1/failure", "/external-task/task-2/complete")
+    }
+
+    @Test
+    fun `locks are extended by the lock duration of the submitting client and task`() {
+        val requestExecutor = RecordingRequestExecutor(failures = 2)
+        CompletionJournalFlusher(directory.resolve("journal"), 4096).use { flusher ->
+            // clients sharing a worker id must not overwrite each other's registration
+            val shortLockClient = buildClient(flusher, requestExecutor, 2000)
+            buildClient(flusher, requestExecutor, 60000)
+
+            val entry = CompletionJournalEntry.complete("task-1", "test-worker", emptyMap(), emptyMap())
+            flusher.submit(shortLockClient, entry)
+            // a task fetched by a subscription which overrides the lock duration of the client
+            shortLockClient.fetchAndLock(listOf(TopicRequestDto("test-topic", 30000, null, null)))
+            shortLockClient.complete("task-2", emptyMap(), emptyMap())
+
+            awaitNoPendingOutcomes(flusher)
+        }
+
+        assertThat(requestExecutor.extendedLocks["task-1"]).isEqualTo(2000)
+        assertThat(requestExecutor.extendedLocks["task-2"]).isEqualTo(30000)
+    }
+
+    private fun buildClient(flusher: CompletionJournalFlusher, requestExecutor: RequestExecutor, lockDuration: Long = 20000): MicronautEngineClient {
+        val builder = MicronautExternalTaskClientBuilder()
+        builder.requestExecutorFactory { _, _, _ -> requestExecutor }
+            .completionJournal(flusher)
+            .baseUrl("http://localhost:8080/engine-rest")
+            .workerId("test-worker")
+            .lockDuration(lockDuration)
+            .disableAutoFetching()
+            .build()
+        return builder.engineClient as MicronautEngineClient
+    }
+
+    private fun awaitNoPendingOutcomes(flusher: CompletionJournalFlusher) {
+        val timeout = System.currentTimeMillis() + 5000
+        while (flusher.pendingCount > 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50)
+        }
+        assertThat(flusher.pendingCount).isEqualTo(0)
+    }
+
+    class RecordingRequestExecutor(private var failures: Int = 0, private val failureStatus: Int? = null) :
+        RequestExecutor(RequestInterceptorHandler(emptyList()), ObjectMapper()) {
+
+        val requests: MutableList<String> = Collections.synchronizedList(mutableListOf())
+        val payloads: MutableList<String> = Collections.synchronizedList(mutableListOf())
+        val extendedLocks: MutableMap<String, Long> = ConcurrentHashMap()
+
+        override fun <T : Any?> postRequest(resourceUrl: String, requestDto: RequestDto?, responseClass: Class<T>): T? {
+            val resourcePath = resourceUrl.removePrefix("http://localhost:8080/engine-rest")
+            requests.add(resourcePath)
+            if (resourcePath.endsWith("/fetchAndLock")) {
+                val externalTask = ExternalTaskImpl().apply { id = "task-2"; topicName = "test-topic" }
+                @Suppress("UNCHECKED_CAST")
+                return arrayOf(externalTask) as T
+            }
+            if (requestDto is ExtendLockRequestDto) {
+                extendedLocks[resourcePath.split("/")[2]] = requestDto.newDuration
+            } else {
+                payloads.add(objectMapper.writeValueAsString(requestDto))
+                if (failures > 0) {
+                    failures--
+                    throw RestException("Engine unavailable", "ProcessEngineException", null).apply {
+                        httpStatusCode = failureStatus ?: 503
+                    }
+                }
+            }
+            return null
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import info.novatec.micronaut.camunda.external.client.feature.ExternalWorkerSubscriptionCreator
+import info.novatec.micronaut.camunda.external.client.feature.MicronautEngineClient
+import info.novatec.micronaut.camunda.external.client.feature.MicronautTopicSubscriptionManager
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest
+import jakarta.inject.Inject
+import jakarta.inject.Named
+import org.assertj.core.api.Assertions.assertThat
+import org.camunda.bpm.client.ExternalTaskClient
+import org.camunda.bpm.client.impl.ExternalTaskClientImpl
+import org.junit.jupiter.api.Test
+
+@MicronautTest(environments = ["clients"])
+class ExternalTaskClientsTest {
+
+    @Inject
+    lateinit var externalTaskClient: ExternalTaskClient
+
+    @Inject
+    @field:Named("isolated")
+    lateinit var isolatedExternalTaskClient: ExternalTaskClient
+
+    @Inject
+    lateinit var externalWorkerSubscriptionCreator: ExternalWorkerSubscriptionCreator
+
+    @Test
+    fun `named client inherits and overrides the configuration`() {
+        val engineClient = (isolatedExternalTaskClient as ExternalTaskClientImpl).topicSubscriptionManager.engineClient as MicronautEngineClient
+
+        assertThat(isolatedExternalTaskClient).isNotSameAs(externalTaskClient)
+        assertThat(engineClient.configuredMaxTasks).isEqualTo(1)
+        assertThat(engineClient.baseUrl).isEqualTo("http://localhost:8080/engine-rest")
+        assertThat(engineClient.workerId).isEqualTo("test-worker")
+    }
+
+    @Test
+    fun `adaptive fetching is enabled per client`() {
+        val isolatedManager = (isolatedExternalTaskClient as ExternalTaskClientImpl).topicSubscriptionManager as MicronautTopicSubscriptionManager
+        val defaultManager = (externalTaskClient as ExternalTaskClientImpl).topicSubscriptionManager as MicronautTopicSubscriptionManager
+
+        assertThat(isolatedManager.adaptiveFetchController.maxTasks).isEqualTo(1)
+        assertThat(defaultManager.adaptiveFetchController).isNull()
+    }
+
+    @Test
+    fun `topic is subscribed with the named client and several fetch loops`() {
+        val topicName = "test-topic-client"
+
+        assertThat(topicNames(isolatedExternalTaskClient)).contains(topicName)
+        assertThat(topicNames(externalTaskClient)).doesNotContain(topicName)
+        assertThat(externalWorkerSubscriptionCreator.topicSubscriptions.filter { it.topicName == topicName }).hasSize(2)
+    }
+
+    private fun topicNames(client: ExternalTaskClient) =
+        (client as ExternalTaskClientImpl).topicSubscriptionManager.subscriptions.map { it.topicName }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import info.novatec.micronaut.camunda.external.client.feature.RequestExecutorFactory
+import info.novatec.micronaut.camunda.external.client.feature.http.EngineHttpClientConfiguration
+import info.novatec.micronaut.camunda.external.client.feature.http.MicronautHttpRequestExecutor
+import info.novatec.micronaut.camunda.external.client.feature.http.MicronautHttpRequestExecutorFactory
+import info.novatec.micronaut.camunda.external.client.feature.test.engine.StubEngineController
+import io.micronaut.http.client.HttpClient
+import io.micronaut.http.client.annotation.Client
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest
+import jakarta.inject.Inject
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.catchThrowable
+import org.camunda.bpm.client.exception.RestException
+import org.camunda.bpm.client.impl.EngineClient
+import org.camunda.bpm.client.impl.EngineClientException
+import org.junit.jupiter.api.Test
+import java.time.Duration
+
+@MicronautTest(environments = ["http"])
+class ExternalTaskHttpClientTest {
+
+    @Inject
+    lateinit var requestExecutorFactory: RequestExecutorFactory
+
+    @Inject
+    lateinit var engineHttpClientConfiguration: EngineHttpClientConfiguration
+
+    @Inject
+    @field:Client(configuration = EngineHttpClientConfiguration::class)
+    lateinit var httpClient: HttpClient
+
+    @Inject
+    lateinit var stubEngineController: StubEngineController
+
+    @Test
+    fun `external task client fetches with the micronaut http client`() {
+        // the user agent alone is not conclusive because the Apache HttpClient sends the same one
+        assertThat(requestExecutorFactory).isInstanceOf(MicronautHttpRequestExecutorFactory::class.java)
+        val timeout = System.currentTimeMillis() + 5000
+        while (stubEngineController.userAgents.isEmpty() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50)
+        }
+        assertThat(stubEngineController.userAgents).contains("Camunda External Task Client")
+    }
+
+    @Test
+    fun `rest errors are passed to the external task client`() {
+        val requestExecutor = requestExecutorFactory.create(emptyList(), ObjectMapper(), null)
+        assertThat(requestExecutor).isInstanceOf(MicronautHttpRequestExecutor::class.java)
+        val engineClient = EngineClient("test-worker", 10, null, "http://localhost:18089/stub-engine-rest", requestExecutor)
+
+        engineClient.extendLock("known", 1000)
+
+        val exception = catchThrowable { engineClient.extendLock("unknown", 1000) }
+        assertThat(exception).isInstanceOf(EngineClientException::class.java)
+        val restException = exception.cause as RestException
+        assertThat(restException.httpStatusCode).isEqualTo(404)
+        assertThat(restException.message).isEqualTo("External task unknown does not exist")
+    }
+
+    @Test
+    fun `external task clients share the http client of the application context`() {
+        val requestExecutor = requestExecutorFactory.create(emptyList(), ObjectMapper(), null)
+
+        assertThat(requestExecutor).isInstanceOf(MicronautHttpRequestExecutor::class.java)
+        assertThat((requestExecutorFactory as MicronautHttpRequestExecutorFactory).httpClient).isSameAs(httpClient)
+        // no async response timeout is configured
+        assertThat(engineHttpClientConfiguration.readTimeout).contains(Duration.ofSeconds(5))
+    }
+}
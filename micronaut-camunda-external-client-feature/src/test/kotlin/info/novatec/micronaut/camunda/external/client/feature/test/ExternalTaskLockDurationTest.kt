@@ -0,0 +1,57 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import info.novatec.micronaut.camunda.external.client.feature.ExternalTaskHandlerDecorator
+import io.micronaut.context.annotation.Requires
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest
+import jakarta.inject.Inject
+import jakarta.inject.Singleton
+import org.assertj.core.api.Assertions.assertThat
+import org.camunda.bpm.client.task.ExternalTaskHandler
+import org.junit.jupiter.api.Test
+import java.util.concurrent.ConcurrentHashMap
+
+@MicronautTest(environments = ["lock-duration"])
+class ExternalTaskLockDurationTest {
+
+    @Inject
+    lateinit var lockDurationRecorder: LockDurationRecorder
+
+    @Test
+    fun `handlers use the lock duration of the client if the subscription has none`() {
+        assertThat(lockDurationRecorder.lockDurations["test-topic-concurrency"]).isEqualTo(45000)
+        assertThat(lockDurationRecorder.lockDurations["test-topic-client"]).isEqualTo(46000)
+    }
+
+    @Test
+    fun `lock duration of the subscription takes precedence`() {
+        assertThat(lockDurationRecorder.lockDurations["test-topic-annotation"]).isEqualTo(19000)
+        assertThat(lockDurationRecorder.lockDurations["test-topic-configuration"]).isEqualTo(30000)
+    }
+
+    @Singleton
+    @Requires(env = ["lock-duration"])
+    class LockDurationRecorder : ExternalTaskHandlerDecorator {
+
+        val lockDurations: MutableMap<String, Long> = ConcurrentHashMap()
+
+        override fun decorate(externalTaskHandler: ExternalTaskHandler, topicName: String, lockDuration: Long): ExternalTaskHandler {
+            lockDurations[topicName] = lockDuration
+            return externalTaskHandler
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import info.novatec.micronaut.camunda.external.client.feature.AsyncExternalTaskHandler
+import info.novatec.micronaut.camunda.external.client.feature.AsyncExternalTaskHandlerAdapter
+import info.novatec.micronaut.camunda.external.client.feature.ExternalTaskOutcome
+import info.novatec.micronaut.camunda.external.client.feature.micrometer.ExternalTaskMetrics
+import info.novatec.micronaut.camunda.external.client.feature.micrometer.MeteredExternalTaskHandler
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest
+import jakarta.inject.Inject
+import org.assertj.core.api.Assertions.assertThat
+import org.camunda.bpm.client.ExternalTaskClient
+import org.camunda.bpm.client.impl.ExternalTaskClientImpl
+import org.camunda.bpm.client.task.ExternalTask
+import org.camunda.bpm.client.task.ExternalTaskHandler
+import org.camunda.bpm.client.task.ExternalTaskService
+import org.junit.jupiter.api.Test
+import java.lang.reflect.Proxy
+import java.util.Date
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+
+@MicronautTest
+class ExternalTaskMetricsTest {
+
+    @Inject
+    lateinit var externalTaskClient: ExternalTaskClient
+
+    @Inject
+    lateinit var meterRegistry: MeterRegistry
+
+    @Test
+    fun `handlers are decorated with metrics`() {
+        val topicName = "test-topic-annotation"
+        val client = externalTaskClient as ExternalTaskClientImpl
+        val subscription = client.topicSubscriptionManager.subscriptions.find { it.topicName == topicName }!!
+
+        assertThat(subscription.externalTaskHandler).isInstanceOf(MeteredExternalTaskHandler::class.java)
+        assertThat(meterRegistry.find("camunda.external-task.execution").tag("topic", topicName).timer()).isNotNull
+    }
+
+    @Test
+    fun `outcome and lock metrics are recorded`() {
+        val registry = SimpleMeterRegistry()
+        val handler = ExternalTaskMetrics(registry).decorate(
+            ExternalTaskHandler { task, service -> service.complete(task) }, "metrics-topic", 1000)
+
+        // lock was acquired 1500 ms ago and expired 500 ms ago
+        val externalTask = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTask::class.java)) { _, method, _ ->
+            if (method.name == "getLockExpirationTime") Date(System.currentTimeMillis() - 500) else null
+        } as ExternalTask
+        val externalTaskService = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTaskService::class.java)) { _, _, _ ->
+            null
+        } as ExternalTaskService
+
+        handler.execute(externalTask, externalTaskService)
+
+        assertThat(registry.get("camunda.external-task.execution").tag("topic", "metrics-topic").timer().count()).isEqualTo(1)
+        assertThat(registry.get("camunda.external-task.outcome").tags("outcome", "complete", "result", "success").timer().count()).isEqualTo(1)
+        assertThat(registry.get("camunda.external-task.outcome").tags("outcome", "complete", "result", "error").timer().count()).isEqualTo(0)
+        assertThat(registry.get("camunda.external-task.lock.held").timer().totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(1500.0)
+        assertThat(registry.get("camunda.external-task.lock.expired").counter().count()).isEqualTo(1.0)
+    }
+
+    @Test
+    fun `lock is held since acquisition even if it was extended`() {
+        val registry = SimpleMeterRegistry()
+        // lock was acquired 500 ms ago
+        var lockExpirationTime = Date(System.currentTimeMillis() + 500)
+        val handler = ExternalTaskMetrics(registry).decorate(ExternalTaskHandler { task, service ->
+            // extended by the lock extender while the handler runs
+            lockExpirationTime = Date(lockExpirationTime.time + 60000)
+            service.complete(task)
+        }, "extended-metrics-topic", 1000)
+
+        val externalTask = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTask::class.java)) { _, method, _ ->
+            when (method.name) {
+                "getId" -> "task-1"
+                "getLockExpirationTime" -> lockExpirationTime
+                else -> null
+            }
+        } as ExternalTask
+        val externalTaskService = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTaskService::class.java)) { _, _, _ ->
+            null
+        } as ExternalTaskService
+
+        handler.execute(externalTask, externalTaskService)
+
+        assertThat(registry.get("camunda.external-task.lock.held").timer().totalTime(TimeUnit.MILLISECONDS)).isBetween(500.0, 5000.0)
+        assertThat(registry.get("camunda.external-task.lock.expired").counter().count()).isEqualTo(0.0)
+    }
+
+    @Test
+    fun `execution of an asynchronous handler is recorded when its stage completes`() {
+        val registry = SimpleMeterRegistry()
+        val metrics = ExternalTaskMetrics(registry)
+        val outcome = CompletableFuture<ExternalTaskOutcome>()
+        val adapter = AsyncExternalTaskHandlerAdapter(
+            metrics.decorateAsync(AsyncExternalTaskHandler { outcome }, "async-metrics-topic", 1000),
+            "async-metrics-topic", 1, Executor { it.run() }, { metrics.decorate(it, "async-metrics-topic", 1000) }, null, 1000)
+
+        val externalTask = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTask::class.java)) { _, _, _ ->
+            null
+        } as ExternalTask
+        val externalTaskService = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTaskService::class.java)) { _, _, _ ->
+            null
+        } as ExternalTaskService
+
+        adapter.execute(externalTask, externalTaskService)
+        val execution = registry.get("camunda.external-task.execution").tag("topic", "async-metrics-topic").timer()
+        assertThat(execution.count()).isEqualTo(0)
+
+        Thread.sleep(200)
+        outcome.complete(ExternalTaskOutcome.complete())
+
+        assertThat(execution.count()).isEqualTo(1)
+        assertThat(execution.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(200.0)
+        assertThat(registry.get("camunda.external-task.outcome").tags("outcome", "complete", "result", "success").timer().count()).isEqualTo(1)
+    }
+}
@@ -15,6 +15,7 @@
  */
 package info.novatec.micronaut.camunda.external.client.feature.test
 
+import info.novatec.micronaut.camunda.external.client.feature.ConcurrentExternalTaskHandler
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest
 import jakarta.inject.Inject
 import org.assertj.core.api.Assertions.assertThat
@@ -54,6 +55,14 @@ class ExternalTaskSubscriptionConfigurationTest {
         assertThat(subscription.isLocalVariables).isFalse
     }
 
+    @Test
+    fun `topic subscription configuration overrides concurrency from annotation`() {
+        val subscription = this.getSubscription("test-topic-concurrency")
+
+        val handler = subscription.externalTaskHandler as ConcurrentExternalTaskHandler
+        assertThat(handler.concurrency).isEqualTo(2)
+    }
+
     private fun getSubscription(topicName: String): TopicSubscription {
         val client = externalTaskClient as ExternalTaskClientImpl
         val subscriptions = client.topicSubscriptionManager.subscriptions
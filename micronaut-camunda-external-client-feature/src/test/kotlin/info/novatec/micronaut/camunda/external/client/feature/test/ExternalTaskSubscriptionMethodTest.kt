@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import info.novatec.micronaut.camunda.external.client.feature.AsyncExternalTaskHandlerAdapter
+import info.novatec.micronaut.camunda.external.client.feature.ExternalTaskSubscriptionMethodProcessor
+import info.novatec.micronaut.camunda.external.client.feature.MethodExternalTaskHandler
+import info.novatec.micronaut.camunda.external.client.feature.test.handler.TestHandlerWithMethod
+import io.micronaut.context.BeanContext
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest
+import jakarta.inject.Inject
+import org.assertj.core.api.Assertions.assertThat
+import org.camunda.bpm.client.ExternalTaskClient
+import org.camunda.bpm.client.impl.ExternalTaskClientImpl
+import org.camunda.bpm.client.task.ExternalTask
+import org.camunda.bpm.client.task.ExternalTaskService
+import org.camunda.bpm.client.topic.TopicSubscription
+import org.junit.jupiter.api.Test
+import java.lang.reflect.Proxy
+
+@MicronautTest
+class ExternalTaskSubscriptionMethodTest {
+
+    @Inject
+    lateinit var externalTaskClient: ExternalTaskClient
+
+    @Inject
+    lateinit var methodProcessor: ExternalTaskSubscriptionMethodProcessor
+
+    @Inject
+    lateinit var beanContext: BeanContext
+
+    @Test
+    fun `method subscription fetches only the bound variables`() {
+        val subscription = getSubscription("test-topic-method")
+
+        assertThat(subscription.variableNames).containsExactly("amount", "customer")
+        assertThat(subscription.lockDuration).isEqualTo(15000)
+    }
+
+    @Test
+    fun `method is invoked with converted variables and completes the task with the returned variables`() {
+        val subscriptionMethod = methodProcessor.subscriptionMethods.find { it.method.methodName == "calculate" }!!
+        val handler = MethodExternalTaskHandler(beanContext.getBean(subscriptionMethod.beanDefinition), subscriptionMethod.method)
+
+        val externalTask = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTask::class.java)) { _, method, args ->
+            if (method.name == "getVariable" && args[0] == "amount") 21 else null
+        } as ExternalTask
+        var completedVariables: Any? = null
+        val externalTaskService = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTaskService::class.java)) { _, method, args ->
+            if (method.name == "complete") completedVariables = args[1]
+            null
+        } as ExternalTaskService
+
+        handler.execute(externalTask, externalTaskService)
+
+        assertThat(completedVariables).isEqualTo(mapOf("total" to 42L, "customer" to "unknown"))
+    }
+
+    @Test
+    fun `asynchronous method with task parameter fetches all variables`() {
+        val subscription = getSubscription("test-topic-method-async")
+
+        assertThat(subscription.externalTaskHandler).isInstanceOf(AsyncExternalTaskHandlerAdapter::class.java)
+        assertThat(subscription.variableNames).isNull()
+    }
+
+    @Test
+    fun `only annotated methods are executable and subscribed next to the handler class`() {
+        val methodNames = methodProcessor.subscriptionMethods
+            .filter { it.beanDefinition.beanType == TestHandlerWithMethod::class.java }
+            .map { it.method.methodName }
+
+        assertThat(methodNames).containsExactly("handleMethod")
+        assertThat(getSubscription("test-topic-handler-with-method").externalTaskHandler).isNotInstanceOf(MethodExternalTaskHandler::class.java)
+        assertThat(getSubscription("test-topic-method-in-handler").variableNames).containsExactly("amount")
+    }
+
+    private fun getSubscription(topicName: String): TopicSubscription {
+        val client = externalTaskClient as ExternalTaskClientImpl
+        return client.topicSubscriptionManager.subscriptions.find { it.topicName == topicName }!!
+    }
+}
@@ -15,6 +15,7 @@
  */
 package info.novatec.micronaut.camunda.external.client.feature.test
 
+import info.novatec.micronaut.camunda.external.client.feature.ConcurrentExternalTaskHandler
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest
 import jakarta.inject.Inject
 import org.assertj.core.api.Assertions.assertThat
@@ -51,6 +52,24 @@ class ExternalTaskSubscriptionTest {
         assertThat(subscription.topicName).isEqualTo(topicName)
     }
 
+    @Test
+    fun `topic subscription with concurrency`() {
+        val topicName = "test-topic-concurrency"
+        val subscription = this.getSubscription(topicName)
+
+        assertThat(subscription.externalTaskHandler).isInstanceOf(ConcurrentExternalTaskHandler::class.java)
+        val handler = subscription.externalTaskHandler as ConcurrentExternalTaskHandler
+        assertThat(handler.concurrency).isEqualTo(4)
+        assertThat(handler.freeSlots).isEqualTo(4)
+    }
+
+    @Test
+    fun `topic subscription without concurrency`() {
+        val subscription = this.getSubscription("test-topic-annotation")
+
+        assertThat(subscription.externalTaskHandler).isNotInstanceOf(ConcurrentExternalTaskHandler::class.java)
+    }
+
     private fun getSubscription(topicName: String): TopicSubscription {
         val client = externalTaskClient as ExternalTaskClientImpl
         val subscriptions = client.topicSubscriptionManager.subscriptions
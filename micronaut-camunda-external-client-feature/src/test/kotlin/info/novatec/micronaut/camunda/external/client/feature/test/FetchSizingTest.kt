@@ -0,0 +1,114 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import info.novatec.micronaut.camunda.external.client.feature.ConcurrentExternalTaskHandler
+import info.novatec.micronaut.camunda.external.client.feature.MicronautExternalTaskClientBuilder
+import info.novatec.micronaut.camunda.external.client.feature.MicronautTopicSubscriptionManager
+import info.novatec.micronaut.camunda.external.client.feature.test.engine.TaskStubEngineController
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest
+import jakarta.inject.Inject
+import org.assertj.core.api.Assertions.assertThat
+import org.camunda.bpm.client.impl.ExternalTaskClientImpl
+import org.camunda.bpm.client.task.ExternalTaskHandler
+import org.junit.jupiter.api.Test
+import java.util.concurrent.Semaphore
+
+@MicronautTest(environments = ["http"])
+class FetchSizingTest {
+
+    @Inject
+    lateinit var taskStubEngineController: TaskStubEngineController
+
+    @Test
+    fun `fetch size follows the free slots of a concurrent handler`() {
+        val release = Semaphore(0)
+        val handler = ConcurrentExternalTaskHandler(ExternalTaskHandler { externalTask, externalTaskService ->
+            release.acquire()
+            externalTaskService.complete(externalTask)
+        }, "test-topic-sizing", 3, false)
+        taskStubEngineController.availableTasks.set(10)
+
+        val client = MicronautExternalTaskClientBuilder()
+            .baseUrl("http://localhost:18089/task-stub-engine-rest")
+            .workerId("test-worker")
+            .maxTasks(10)
+            .disableBackoffStrategy()
+            .build()
+        try {
+            client.subscribe("test-topic-sizing").handler(handler).open()
+
+            awaitCondition { handler.freeSlots == 0 }
+            assertThat(taskStubEngineController.requestedMaxTasks.first()).isEqualTo(3)
+
+            // nothing is fetched while all slots are taken
+            val requestsWhileSaturated = taskStubEngineController.requestedMaxTasks.size
+            Thread.sleep(1500)
+            assertThat(taskStubEngineController.requestedMaxTasks).hasSize(requestsWhileSaturated)
+
+            // a released slot resumes fetching for exactly one task
+            release.release()
+            awaitCondition { taskStubEngineController.requestedMaxTasks.size > requestsWhileSaturated }
+            assertThat(taskStubEngineController.requestedMaxTasks[requestsWhileSaturated]).isEqualTo(1)
+
+            release.release(10)
+            awaitCondition { taskStubEngineController.completedTasks.size == 10 }
+            assertThat(taskStubEngineController.requestedMaxTasks).allMatch { it in 1..3 }
+        } finally {
+            release.release(10)
+            client.stop()
+            handler.close()
+        }
+    }
+
+    @Test
+    fun `adaptive fetch limit shrinks if a concurrent handler reports close to the lock expiration`() {
+        val handler = ConcurrentExternalTaskHandler(ExternalTaskHandler { externalTask, externalTaskService ->
+            Thread.sleep(850)
+            externalTaskService.complete(externalTask)
+        }, "test-topic-adaptive", 4, false)
+        taskStubEngineController.lockDuration.set(1000)
+        taskStubEngineController.availableTasks.set(8)
+
+        val client = MicronautExternalTaskClientBuilder()
+            .adaptiveFetching(1, 500)
+            .baseUrl("http://localhost:18089/task-stub-engine-rest")
+            .workerId("test-worker")
+            .maxTasks(4)
+            .build()
+        try {
+            val controller = ((client as ExternalTaskClientImpl).topicSubscriptionManager as MicronautTopicSubscriptionManager).adaptiveFetchController
+            client.subscribe("test-topic-adaptive").handler(handler).open()
+
+            // the handler returns right after dispatching, only the reported outcomes reveal how little lock was left
+            awaitCondition { controller.fetchLimit < 4 }
+            assertThat(controller.fetchLimit).isEqualTo(2)
+        } finally {
+            client.stop()
+            handler.close()
+            taskStubEngineController.lockDuration.set(60000)
+            taskStubEngineController.availableTasks.set(0)
+        }
+    }
+
+    private fun awaitCondition(condition: () -> Boolean) {
+        val timeout = System.currentTimeMillis() + 5000
+        while (!condition() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(20)
+        }
+        assertThat(condition()).isTrue
+    }
+}
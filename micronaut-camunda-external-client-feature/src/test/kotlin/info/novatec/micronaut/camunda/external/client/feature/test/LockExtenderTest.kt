@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test
+
+import info.novatec.micronaut.camunda.external.client.feature.LockExtender
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest
+import jakarta.inject.Inject
+import org.assertj.core.api.Assertions.assertThat
+import org.camunda.bpm.client.task.ExternalTask
+import org.camunda.bpm.client.task.ExternalTaskService
+import org.junit.jupiter.api.Test
+import java.lang.reflect.Proxy
+import java.util.Date
+import java.util.concurrent.atomic.AtomicInteger
+
+@MicronautTest
+class LockExtenderTest {
+
+    @Inject
+    lateinit var lockExtender: LockExtender
+
+    @Test
+    fun `lock is extended until the lease is cancelled`() {
+        val lockDuration = 1000L
+        val extensions = AtomicInteger()
+
+        // half of the lock duration has already passed, so the lock is due for extension
+        val externalTask = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTask::class.java)) { _, method, _ ->
+            if (method.name == "getLockExpirationTime") Date(System.currentTimeMillis() + lockDuration / 2) else null
+        } as ExternalTask
+        val externalTaskService = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTaskService::class.java)) { _, method, args ->
+            if (method.name == "extendLock" && args[1] == lockDuration) extensions.incrementAndGet()
+            null
+        } as ExternalTaskService
+
+        val lease = lockExtender.register(externalTask, externalTaskService, lockDuration)
+
+        val timeout = System.currentTimeMillis() + 5000
+        while (extensions.get() == 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50)
+        }
+        assertThat(extensions.get()).isGreaterThan(0)
+
+        lease.cancel()
+        val extensionsAfterCancel = extensions.get()
+        Thread.sleep(2500)
+        assertThat(extensions.get()).isEqualTo(extensionsAfterCancel)
+    }
+
+    @Test
+    fun `failed extension is retried while the lock has not expired`() {
+        val lockDuration = 4000L
+        val attempts = AtomicInteger()
+        val extensions = AtomicInteger()
+
+        val externalTask = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTask::class.java)) { _, method, _ ->
+            if (method.name == "getLockExpirationTime") Date(System.currentTimeMillis() + lockDuration / 2) else null
+        } as ExternalTask
+        val externalTaskService = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(ExternalTaskService::class.java)) { _, method, _ ->
+            if (method.name == "extendLock") {
+                if (attempts.incrementAndGet() == 1) throw IllegalStateException("engine unavailable")
+                extensions.incrementAndGet()
+            }
+            null
+        } as ExternalTaskService
+
+        val lease = lockExtender.register(externalTask, externalTaskService, lockDuration)
+
+        val timeout = System.currentTimeMillis() + 5000
+        while (extensions.get() == 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50)
+        }
+        lease.cancel()
+        assertThat(attempts.get()).isGreaterThan(1)
+        assertThat(extensions.get()).isGreaterThan(0)
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test.engine
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.http.HttpHeaders
+import io.micronaut.http.HttpResponse
+import io.micronaut.http.HttpStatus
+import io.micronaut.http.MediaType
+import io.micronaut.http.annotation.Body
+import io.micronaut.http.annotation.Controller
+import io.micronaut.http.annotation.Header
+import io.micronaut.http.annotation.Post
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * Minimal stand-in for the external task endpoints of the Camunda Platform REST API.
+ */
+@Controller("/stub-engine-rest/external-task")
+@Requires(env = ["http"])
+class StubEngineController {
+
+    val userAgents: MutableList<String> = CopyOnWriteArrayList()
+
+    @Post("/fetchAndLock", produces = [MediaType.APPLICATION_JSON])
+    fun fetchAndLock(@Header(HttpHeaders.USER_AGENT) userAgent: String, @Body body: String): String {
+        userAgents.add(userAgent)
+        return "[]"
+    }
+
+    @Post("/{id}/extendLock")
+    fun extendLock(id: String, @Body body: String): HttpResponse<String> {
+        if (id == "unknown") {
+            return HttpResponse.status<String>(HttpStatus.NOT_FOUND)
+                .contentType(MediaType.APPLICATION_JSON_TYPE)
+                .body("{\"type\":\"RestException\",\"message\":\"External task $id does not exist\"}")
+        }
+        return HttpResponse.noContent()
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test.engine
+
+import io.micronaut.context.annotation.Requires
+import io.micronaut.http.HttpResponse
+import io.micronaut.http.MediaType
+import io.micronaut.http.annotation.Body
+import io.micronaut.http.annotation.Controller
+import io.micronaut.http.annotation.Post
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Stand-in for the external task endpoints which hands out the available tasks and records the max tasks of every
+ * fetch and lock request.
+ */
+@Controller("/task-stub-engine-rest/external-task")
+@Requires(env = ["http"])
+class TaskStubEngineController {
+
+    val requestedMaxTasks: MutableList<Int> = CopyOnWriteArrayList()
+    val availableTasks = AtomicInteger()
+    val lockDuration = AtomicLong(60000)
+    val completedTasks: MutableList<String> = CopyOnWriteArrayList()
+
+    private val taskIds = AtomicInteger()
+
+    @Post("/fetchAndLock", produces = [MediaType.APPLICATION_JSON])
+    fun fetchAndLock(@Body body: Map<String, Any>): String {
+        val maxTasks = (body["maxTasks"] as Number).toInt()
+        requestedMaxTasks.add(maxTasks)
+        val topicName = (body["topics"] as List<*>).filterIsInstance<Map<*, *>>().first()["topicName"]
+        val lockExpirationTime = SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(Date(System.currentTimeMillis() + lockDuration.get()))
+        var count = 0
+        while (count < maxTasks && availableTasks.getAndUpdate { if (it > 0) it - 1 else it } > 0) {
+            count++
+        }
+        return (1..count).joinToString(",", "[", "]") {
+            "{\"id\":\"task-${taskIds.incrementAndGet()}\",\"topicName\":\"$topicName\",\"workerId\":\"test-worker\"," +
+                "\"lockExpirationTime\":\"$lockExpirationTime\",\"variables\":{}}"
+        }
+    }
+
+    @Post("/{id}/complete")
+    fun complete(id: String, @Body body: String): HttpResponse<String> {
+        completedTasks.add(id)
+        return HttpResponse.noContent()
+    }
+}
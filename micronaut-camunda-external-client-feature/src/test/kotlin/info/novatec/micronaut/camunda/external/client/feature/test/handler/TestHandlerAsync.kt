@@ -0,0 +1,33 @@
+/*
+ * Copyright 2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.novatec.micronaut.camunda.external.client.feature.test.handler
+
+import info.novatec.micronaut.camunda.external.client.feature.AsyncExternalTaskHandler
+import info.novatec.micronaut.camunda.external.client.feature.ExternalTaskOutcome
+import info.novatec.micronaut.camunda.external.client.feature.ExternalTaskSubscription
+import jakarta.inject.Singleton
+import org.camunda.bpm.client.task.ExternalTask
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionStage
+
+@Singleton
+@ExternalTaskSubscription(topicName = "test-topic-async", concurrency = 5)
+class TestHandlerAsync : AsyncExternalTaskHandler {
+
+    override fun execute(externalTask: ExternalTask): CompletionStage<ExternalTaskOutcome> {
+        return CompletableFuture.completedFuture(ExternalTaskOutcome.complete())
+    }
+}